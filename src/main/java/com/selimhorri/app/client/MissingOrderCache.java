@@ -0,0 +1,83 @@
+package com.selimhorri.app.client;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.selimhorri.app.config.client.OrderClientProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Short-lived record of the order ids ORDER-SERVICE reported as not found.
+ * A remembered miss is answered locally, with the same 404 the remote call would
+ * have produced, until its TTL runs out or the order is explicitly forgotten.
+ */
+@Component
+@Slf4j
+public class MissingOrderCache {
+
+    private final OrderClientProperties.NegativeCache config;
+    private final Cache<Integer, Boolean> missing;
+    private final Counter hits;
+
+    public MissingOrderCache(final OrderClientProperties properties, final MeterRegistry meterRegistry) {
+        this.config = properties.getNegativeCache();
+        this.missing = Caffeine.newBuilder()
+                .maximumSize(this.config.getMaximumSize())
+                .expireAfterWrite(this.config.getTtl())
+                .build();
+        this.hits = Counter.builder("order.client.cache.negative.hits")
+                .description("Order lookups answered as not found from the negative cache")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    public boolean isMissing(final Integer orderId) {
+        if (!this.config.isEnabled() || this.missing.getIfPresent(orderId) == null) {
+            return false;
+        }
+        this.hits.increment();
+        return true;
+    }
+
+    /**
+     * @return the given ids that are remembered as missing
+     */
+    public Set<Integer> filterMissing(final Collection<Integer> orderIds) {
+        if (!this.config.isEnabled()) {
+            return Set.of();
+        }
+        Set<Integer> known = this.missing.getAllPresent(orderIds).keySet();
+        this.hits.increment(known.size());
+        return known;
+    }
+
+    public void recordMissing(final Integer orderId) {
+        if (this.config.isEnabled()) {
+            this.missing.put(orderId, Boolean.TRUE);
+            log.debug("Remembering order {} as missing for {}", orderId, this.config.getTtl());
+        }
+    }
+
+    public void recordMissing(final Collection<Integer> orderIds) {
+        orderIds.forEach(this::recordMissing);
+    }
+
+    public void forget(final Integer orderId) {
+        this.missing.invalidate(orderId);
+    }
+
+    public static HttpClientErrorException notFound(final Integer orderId) {
+        return HttpClientErrorException.create(
+                HttpStatus.NOT_FOUND, "Order " + orderId + " not found", null, null, null);
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.selimhorri.app.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Collects single order lookups issued by concurrent requests and sends them to
+ * ORDER-SERVICE as one multi-id request, once the batching window closes or the
+ * batch is full. At low load, and once shut down, lookups bypass the collector and go
+ * out directly. A lookup whose batch fails, is lost at shutdown, or takes longer than the
+ * client's timeouts allow fails with it: retrying each id alone would multiply the calls
+ * just when ORDER-SERVICE is struggling.
+ */
+@Component
+@Slf4j
+public class OrderLookupBatcher {
+
+    private final OrderClientProperties properties;
+    private final OrderClientProperties.MicroBatch config;
+    private final OrderServiceGateway gateway;
+    private final ScheduledThreadPoolExecutor flusher;
+    private final AtomicInteger concurrentLookups = new AtomicInteger();
+    private final Duration maxWait;
+
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+    private final Counter bypassed;
+
+    private final Object lock = new Object();
+    private List<PendingLookup> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    // Full batches handed to the flusher but not picked up yet; shutdownNow() drops them
+    private final Set<List<PendingLookup>> unsent = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public OrderLookupBatcher(final OrderClientProperties properties,
+            final OrderServiceGateway gateway,
+            final MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.config = properties.getMicroBatch();
+        this.gateway = gateway;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.flusher = new ScheduledThreadPoolExecutor(Math.max(1, this.config.getFlushThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "order-batcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.setRemoveOnCancelPolicy(true);
+        this.maxWait = this.config.getWindow()
+                .plus(properties.getConnectTimeout())
+                .plus(properties.getReadTimeout());
+
+        this.batchSize = DistributionSummary.builder("order.client.batch.size")
+                .description("Order ids sent per micro-batched lookup")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.queueDelay = Timer.builder("order.client.batch.queue.delay")
+                .description("Time a lookup waited for its micro-batch to be sent")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.bypassed = Counter.builder("order.client.batch.bypassed")
+                .description("Lookups sent directly because load was below the batching threshold")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    public OrderDto fetch(final Integer orderId) {
+        int concurrent = this.concurrentLookups.incrementAndGet();
+        try {
+            if (!this.properties.getBatch().isEnabled() || !this.config.isEnabled()
+                    || concurrent < this.config.getMinConcurrency() || this.flusher.isShutdown()) {
+                this.bypassed.increment();
+                return this.gateway.fetchOrder(orderId);
+            }
+            return await(orderId, enqueue(orderId));
+        } finally {
+            this.concurrentLookups.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.flusher.shutdownNow();
+        List<List<PendingLookup>> abandoned = new ArrayList<>();
+        synchronized (this.lock) {
+            abandoned.addAll(this.unsent);
+            this.unsent.clear();
+            abandoned.add(drain());
+        }
+        abandoned.forEach(batch -> fail(batch, shutDown()));
+    }
+
+    private CompletableFuture<OrderDto> enqueue(Integer orderId) {
+        PendingLookup lookup = new PendingLookup(orderId);
+        List<PendingLookup> fullBatch = null;
+
+        synchronized (this.lock) {
+            this.pending.add(lookup);
+            if (this.pending.size() >= this.config.getMaxBatchSize()) {
+                fullBatch = drain();
+                this.unsent.add(fullBatch);
+            } else if (this.scheduledFlush == null) {
+                try {
+                    this.scheduledFlush = this.flusher.schedule(
+                            this::flush, this.config.getWindow().toNanos(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Shut down after fetch() checked; the lookups left pending fail
+                    fail(drain(), shutDown());
+                }
+            }
+        }
+
+        if (fullBatch != null) {
+            List<PendingLookup> batch = fullBatch;
+            try {
+                this.flusher.execute(() -> sendUnsent(batch));
+            } catch (RejectedExecutionException e) {
+                if (claim(batch)) {
+                    fail(batch, shutDown());
+                }
+            }
+        }
+        return lookup.result;
+    }
+
+    private void flush() {
+        List<PendingLookup> batch;
+        synchronized (this.lock) {
+            batch = drain();
+        }
+        send(batch);
+    }
+
+    private List<PendingLookup> drain() {
+        List<PendingLookup> batch = this.pending;
+        this.pending = new ArrayList<>();
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void sendUnsent(List<PendingLookup> batch) {
+        // Whoever claims the batch, this task or shutdown(), completes its lookups
+        if (claim(batch)) {
+            send(batch);
+        }
+    }
+
+    private boolean claim(List<PendingLookup> batch) {
+        synchronized (this.lock) {
+            return this.unsent.remove(batch);
+        }
+    }
+
+    private void send(List<PendingLookup> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long sentAt = System.nanoTime();
+        Map<Integer, List<PendingLookup>> byOrderId = new LinkedHashMap<>();
+        for (PendingLookup lookup : batch) {
+            this.queueDelay.record(sentAt - lookup.enqueuedAt, TimeUnit.NANOSECONDS);
+            byOrderId.computeIfAbsent(lookup.orderId, orderId -> new ArrayList<>()).add(lookup);
+        }
+        this.batchSize.record(byOrderId.size());
+
+        try {
+            Map<Integer, OrderDto> orders = this.gateway.fetchOrders(new ArrayList<>(byOrderId.keySet()));
+            byOrderId.forEach((orderId, lookups) -> {
+                OrderDto orderDto = orders.get(orderId);
+                lookups.forEach(lookup -> {
+                    if (orderDto != null) {
+                        lookup.result.complete(orderDto);
+                    } else {
+                        lookup.result.completeExceptionally(MissingOrderCache.notFound(orderId));
+                    }
+                });
+            });
+        } catch (RuntimeException e) {
+            log.warn("Micro-batched lookup of {} orders failed: {}", byOrderId.size(), e.getMessage());
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<PendingLookup> batch, RuntimeException failure) {
+        batch.forEach(lookup -> lookup.result.completeExceptionally(failure));
+    }
+
+    private static ResourceAccessException shutDown() {
+        return new ResourceAccessException("Order lookup batcher shut down");
+    }
+
+    private OrderDto await(Integer orderId, CompletableFuture<OrderDto> result) {
+        try {
+            return result.get(this.maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new ResourceAccessException(
+                    "Micro-batched lookup of order " + orderId + " took over " + this.maxWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for order " + orderId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class PendingLookup {
+
+        private final Integer orderId;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<OrderDto> result = new CompletableFuture<>();
+
+        private PendingLookup(Integer orderId) {
+            this.orderId = orderId;
+        }
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.selimhorri.app.client;
+
+import java.util.Collection;
+import java.util.Map;
+
+import com.selimhorri.app.dto.OrderDto;
+
+public interface OrderServiceClient {
+	
+	OrderDto fetchOrderById(final Integer orderId);
+	Map<Integer, OrderDto> fetchOrdersByIds(final Collection<Integer> orderIds);
+	
+	/**
+	 * Like {@link #fetchOrderById}, but never answered from the order snapshot cache; for
+	 * decisions a stale status must not drive, such as whether an order may still be paid
+	 */
+	OrderDto fetchCurrentOrderById(final Integer orderId);
+	Map<Integer, OrderDto> fetchCurrentOrdersByIds(final Collection<Integer> orderIds);
+	void updateOrderStatus(final Integer orderId);
+	void forgetMissingOrder(final Integer orderId);
+	
+}
@@ -0,0 +1,55 @@
+package com.selimhorri.app.client;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Plain HTTP calls to ORDER-SERVICE, without caching, coalescing or fallbacks.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderServiceGateway {
+
+    private final RestTemplate restTemplate;
+    private final OrderClientProperties properties;
+
+    public OrderDto fetchOrder(final Integer orderId) {
+        String url = this.properties.getBaseUrl() + "/" + orderId;
+        return this.restTemplate.getForObject(url, OrderDto.class);
+    }
+
+    /**
+     * One multi-id request; orders unknown to ORDER-SERVICE are absent from the result
+     */
+    public Map<Integer, OrderDto> fetchOrders(final List<Integer> orderIds) {
+        String url = this.properties.getBaseUrl() + this.properties.getBatch().getPath() + "?ids="
+                + orderIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+
+        OrderDto[] response = this.restTemplate.getForObject(url, OrderDto[].class);
+        Map<Integer, OrderDto> orders = new HashMap<>(orderIds.size() * 2);
+        if (response != null) {
+            for (OrderDto orderDto : response) {
+                if (orderDto != null && orderDto.getOrderId() != null) {
+                    orders.put(orderDto.getOrderId(), orderDto);
+                }
+            }
+        }
+        return orders;
+    }
+
+    public void patchOrderStatus(final Integer orderId) {
+        String patchUrl = this.properties.getBaseUrl() + "/" + orderId + "/status";
+        this.restTemplate.patchForObject(patchUrl, null, Void.class);
+    }
+
+}
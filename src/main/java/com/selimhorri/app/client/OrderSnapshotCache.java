@@ -0,0 +1,220 @@
+package com.selimhorri.app.client;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local, size-bounded (W-TinyLFU) cache of the orders fetched from ORDER-SERVICE.
+ * Hit, miss and eviction counts are published as {@code cache.*} meters under
+ * {@code cache=order-snapshots}.
+ *
+ * <p>In stale-while-revalidate mode a snapshot older than {@code refresh-after} is still
+ * returned immediately, flagged as {@code stale}, while a background refresh replaces it.
+ * A snapshot whose refreshes keep failing is served until {@code expire-after-write}.
+ */
+@Component
+@Slf4j
+public class OrderSnapshotCache {
+
+    static final String CACHE_NAME = "order-snapshots";
+
+    private final OrderClientProperties.Cache config;
+    private final Cache<Integer, Snapshot> cache;
+    private final ThreadPoolExecutor refresher;
+    private final Set<Integer> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Counter staleServed;
+    private final Counter refreshFailures;
+
+    public OrderSnapshotCache(final OrderClientProperties properties, final MeterRegistry meterRegistry) {
+        this.config = properties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(this.config.getMaximumWeight().toBytes())
+                .weigher((Integer orderId, Snapshot snapshot) -> estimateWeight(snapshot.orderDto))
+                .expireAfterWrite(this.config.getExpireAfterWrite())
+                .expireAfterAccess(this.config.getExpireAfterAccess())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, CACHE_NAME, "service", "payment-service");
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int refreshThreads = Math.max(1, this.config.getRefreshThreads());
+        this.refresher = new ThreadPoolExecutor(
+                refreshThreads, refreshThreads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(100),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.refresher.allowCoreThreadTimeOut(true);
+
+        this.staleServed = Counter.builder("order.client.cache.stale.served")
+                .description("Order snapshots served past their refresh-after age")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder("order.client.cache.refresh.failures")
+                .description("Background order snapshot refreshes that failed")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached order, or loads and caches it on the calling thread when absent
+     */
+    public OrderDto get(final Integer orderId, final Function<Integer, OrderDto> loader) {
+        if (!this.config.isEnabled()) {
+            return loader.apply(orderId);
+        }
+
+        Snapshot snapshot = this.cache.getIfPresent(orderId);
+        if (snapshot != null) {
+            OrderDto orderDto = serve(orderId, snapshot, loader);
+            if (orderDto != null) {
+                return orderDto;
+            }
+        }
+
+        OrderDto orderDto = loader.apply(orderId);
+        put(orderId, orderDto);
+        return orderDto;
+    }
+
+    /**
+     * Returns the cached orders among the given ids, scheduling a refresh for stale ones
+     */
+    public Map<Integer, OrderDto> getAllPresent(final Collection<Integer> orderIds,
+            final Function<Integer, OrderDto> loader) {
+        if (!this.config.isEnabled()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Integer, OrderDto> orders = new HashMap<>();
+        this.cache.getAllPresent(orderIds).forEach((orderId, snapshot) -> {
+            OrderDto orderDto = serve(orderId, snapshot, loader);
+            if (orderDto != null) {
+                orders.put(orderId, orderDto);
+            }
+        });
+        return orders;
+    }
+
+    public void put(final Integer orderId, final OrderDto orderDto) {
+        if (this.config.isEnabled() && orderDto != null) {
+            this.cache.put(orderId, new Snapshot(orderDto));
+        }
+    }
+
+    public void putAll(final Map<Integer, OrderDto> orders) {
+        orders.forEach(this::put);
+    }
+
+    public void invalidate(final Integer orderId) {
+        this.cache.invalidate(orderId);
+        log.debug("Invalidated cached order {}", orderId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.refresher.shutdownNow();
+    }
+
+    /**
+     * @return the order to hand out for this snapshot, or {@code null} when it is
+     *         too old to be served without a synchronous reload
+     */
+    private OrderDto serve(Integer orderId, Snapshot snapshot, Function<Integer, OrderDto> loader) {
+        if (snapshot.age() < this.config.getRefreshAfter().toNanos()) {
+            return snapshot.orderDto;
+        }
+        if (!this.config.isStaleWhileRevalidate()) {
+            return null;
+        }
+        refreshAsync(orderId, loader);
+        this.staleServed.increment();
+        return snapshot.orderDto.toBuilder().stale(true).build();
+    }
+
+    private void refreshAsync(Integer orderId, Function<Integer, OrderDto> loader) {
+        if (!this.refreshing.add(orderId)) {
+            return;
+        }
+        try {
+            this.refresher.execute(() -> {
+                try {
+                    put(orderId, loader.apply(orderId));
+                } catch (HttpClientErrorException.NotFound e) {
+                    invalidate(orderId);
+                } catch (RuntimeException e) {
+                    this.refreshFailures.increment();
+                    log.warn("Background refresh of order {} failed, serving stale snapshot: {}",
+                            orderId, e.getMessage());
+                } finally {
+                    this.refreshing.remove(orderId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Skipped while saturated; the next read of the same snapshot tries again
+            this.refreshing.remove(orderId);
+        }
+    }
+
+    /**
+     * Rough shallow-plus-strings size of an order in bytes
+     */
+    static int estimateWeight(OrderDto orderDto) {
+        int weight = 96;
+        if (orderDto.getOrderDate() != null) {
+            weight += 48;
+        }
+        if (orderDto.getOrderDesc() != null) {
+            weight += 40 + orderDto.getOrderDesc().length() * 2;
+        }
+        if (orderDto.getOrderStatus() != null) {
+            weight += 40 + orderDto.getOrderStatus().length() * 2;
+        }
+        return weight;
+    }
+
+    private static final class Snapshot {
+
+        private final OrderDto orderDto;
+        private final long fetchedAt = System.nanoTime();
+
+        private Snapshot(OrderDto orderDto) {
+            this.orderDto = orderDto;
+        }
+
+        private long age() {
+            return System.nanoTime() - this.fetchedAt;
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.selimhorri.app.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs single order lookups concurrently on a dedicated, bounded pool.
+ * Each call keeps at most {@code max-concurrency} lookups in flight, gives up on
+ * whatever is still pending once the deadline passes, and returns the results
+ * in the same order as the requested ids. Lookups the saturated pool turns away
+ * stay unresolved, like those that miss the deadline.
+ */
+@Component
+@Slf4j
+public class ParallelOrderLookup {
+
+    private final Executor executor;
+    private final OrderClientProperties properties;
+
+    @Autowired
+    public ParallelOrderLookup(final OrderClientProperties properties) {
+        this(newLookupPool(properties.getParallel()), properties);
+    }
+
+    public ParallelOrderLookup(final Executor executor, final OrderClientProperties properties) {
+        this.executor = executor;
+        this.properties = properties;
+    }
+
+    /**
+     * @return one entry per requested id, {@code null} where the lookup failed,
+     *         found nothing, was rejected by the pool or missed the deadline
+     */
+    public List<OrderDto> fetchAll(final List<Integer> orderIds, final Function<Integer, OrderDto> lookup) {
+        OrderClientProperties.Parallel parallel = this.properties.getParallel();
+        Executor target = parallel.isEnabled() ? this.executor : Runnable::run;
+        long deadline = System.nanoTime() + parallel.getDeadline().toNanos();
+
+        Semaphore permits = new Semaphore(Math.max(1, parallel.getMaxConcurrency()));
+        List<CompletableFuture<OrderDto>> futures = new ArrayList<>(orderIds.size());
+        for (Integer orderId : orderIds) {
+            if (!acquire(permits, deadline)) {
+                futures.add(CompletableFuture.failedFuture(new TimeoutException()));
+                continue;
+            }
+            CompletableFuture<OrderDto> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> lookup.apply(orderId), target);
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                futures.add(CompletableFuture.failedFuture(e));
+                continue;
+            }
+            future.whenComplete((orderDto, e) -> permits.release());
+            futures.add(future);
+        }
+
+        List<OrderDto> orders = new ArrayList<>(orderIds.size());
+        int timedOut = 0;
+        int rejected = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                orders.add(futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | CancellationException e) {
+                futures.get(i).cancel(false);
+                orders.add(null);
+                timedOut++;
+            } catch (ExecutionException e) {
+                orders.add(null);
+                if (e.getCause() instanceof TimeoutException) {
+                    timedOut++;
+                } else if (e.getCause() instanceof RejectedExecutionException) {
+                    rejected++;
+                } else if (e.getCause() instanceof HttpClientErrorException.NotFound) {
+                    log.debug("Order {} not found", orderIds.get(i));
+                } else {
+                    log.warn("Could not fetch order {}: {}", orderIds.get(i), e.getCause().getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.subList(i, futures.size()).forEach(future -> future.cancel(false));
+                while (orders.size() < orderIds.size()) {
+                    orders.add(null);
+                }
+                break;
+            }
+        }
+
+        if (rejected > 0) {
+            log.warn("{} of {} order lookups were rejected by the saturated lookup pool", rejected, orderIds.size());
+        }
+        if (timedOut > 0) {
+            log.warn("{} of {} order lookups missed the {} ms deadline",
+                    timedOut, orderIds.size(), parallel.getDeadline().toMillis());
+        }
+        return orders;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (this.executor instanceof ExecutorService) {
+            ((ExecutorService) this.executor).shutdownNow();
+        }
+    }
+
+    private static boolean acquire(Semaphore permits, long deadline) {
+        try {
+            return permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ExecutorService newLookupPool(OrderClientProperties.Parallel parallel) {
+        AtomicInteger threadCount = new AtomicInteger();
+        int poolSize = Math.max(1, parallel.getMaxConcurrency());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, parallel.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-lookup-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Running on the calling thread instead would serialize the lookups past the deadline
+                new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.selimhorri.app.client.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import com.selimhorri.app.client.MissingOrderCache;
+import com.selimhorri.app.client.OrderLookupBatcher;
+import com.selimhorri.app.client.OrderServiceClient;
+import com.selimhorri.app.client.OrderServiceGateway;
+import com.selimhorri.app.client.OrderSnapshotCache;
+import com.selimhorri.app.client.ParallelOrderLookup;
+import com.selimhorri.app.client.SingleFlight;
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderServiceClientImpl implements OrderServiceClient {
+
+    private final OrderClientProperties properties;
+    private final OrderServiceGateway gateway;
+    private final ParallelOrderLookup parallelOrderLookup;
+    private final OrderSnapshotCache orderSnapshotCache;
+    private final OrderLookupBatcher orderLookupBatcher;
+    private final MissingOrderCache missingOrderCache;
+    private final SingleFlight<Integer, OrderDto> singleFlight = new SingleFlight<>();
+
+    @Override
+    public OrderDto fetchOrderById(final Integer orderId) {
+        if (this.missingOrderCache.isMissing(orderId)) {
+            throw MissingOrderCache.notFound(orderId);
+        }
+        return this.orderSnapshotCache.get(orderId, this::load);
+    }
+
+    /**
+     * Serves what it can from the order snapshot cache and resolves the rest in chunks of
+     * {@code app.order-client.batch.chunk-size}. Lookups are best-effort: ids that cannot
+     * be resolved are simply absent from the result.
+     */
+    @Override
+    public Map<Integer, OrderDto> fetchOrdersByIds(final Collection<Integer> orderIds) {
+        List<Integer> distinctIds = distinctIds(orderIds);
+        Map<Integer, OrderDto> orders = new HashMap<>(this.orderSnapshotCache.getAllPresent(distinctIds, this::load));
+        return resolveMissing(distinctIds, orders);
+    }
+
+    /**
+     * Loads the order past the snapshot cache, which may serve a stale snapshot, and caches
+     * what it finds for later reads
+     */
+    @Override
+    public OrderDto fetchCurrentOrderById(final Integer orderId) {
+        if (this.missingOrderCache.isMissing(orderId)) {
+            throw MissingOrderCache.notFound(orderId);
+        }
+        OrderDto orderDto = load(orderId);
+        this.orderSnapshotCache.put(orderId, orderDto);
+        return orderDto;
+    }
+
+    @Override
+    public Map<Integer, OrderDto> fetchCurrentOrdersByIds(final Collection<Integer> orderIds) {
+        return resolveMissing(distinctIds(orderIds), new HashMap<>());
+    }
+
+    @Override
+    public void updateOrderStatus(final Integer orderId) {
+        try {
+            this.gateway.patchOrderStatus(orderId);
+        } finally {
+            // Even a failed PATCH may have reached ORDER-SERVICE
+            this.orderSnapshotCache.invalidate(orderId);
+        }
+    }
+
+    @Override
+    public void forgetMissingOrder(final Integer orderId) {
+        this.missingOrderCache.forget(orderId);
+    }
+
+    private static List<Integer> distinctIds(Collection<Integer> orderIds) {
+        return orderIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Fetches the ids not in {@code orders} yet, in chunks, and adds what it finds to it
+     */
+    private Map<Integer, OrderDto> resolveMissing(List<Integer> distinctIds, Map<Integer, OrderDto> orders) {
+        Set<Integer> knownMissing = this.missingOrderCache.filterMissing(distinctIds);
+        List<Integer> missingIds = distinctIds.stream()
+                .filter(orderId -> !orders.containsKey(orderId) && !knownMissing.contains(orderId))
+                .collect(Collectors.toList());
+        if (missingIds.isEmpty()) {
+            return orders;
+        }
+
+        Map<Integer, OrderDto> fetched = new HashMap<>(missingIds.size() * 2);
+        int chunkSize = Math.max(1, this.properties.getBatch().getChunkSize());
+        for (int from = 0; from < missingIds.size(); from += chunkSize) {
+            List<Integer> chunk = missingIds.subList(from, Math.min(from + chunkSize, missingIds.size()));
+            fetched.putAll(this.properties.getBatch().isEnabled()
+                    ? fetchChunk(chunk)
+                    : fetchOneByOne(chunk));
+        }
+        this.orderSnapshotCache.putAll(fetched);
+        orders.putAll(fetched);
+
+        log.debug("Resolved {} of {} orders ({} cached) in {} chunk(s)", orders.size(), distinctIds.size(),
+                distinctIds.size() - missingIds.size(), (missingIds.size() + chunkSize - 1) / chunkSize);
+        return orders;
+    }
+
+    /**
+     * Coalesced single lookup, micro-batched with other requests' lookups under load.
+     * Runs outside the cache's own compute so a slow ORDER-SERVICE never holds cache locks.
+     */
+    private OrderDto load(Integer orderId) {
+        return this.singleFlight.execute(orderId, id -> rememberIfMissing(id, this.orderLookupBatcher::fetch));
+    }
+
+    private OrderDto rememberIfMissing(Integer orderId, Function<Integer, OrderDto> lookup) {
+        try {
+            return lookup.apply(orderId);
+        } catch (HttpClientErrorException.NotFound e) {
+            this.missingOrderCache.recordMissing(orderId);
+            throw e;
+        }
+    }
+
+    private Map<Integer, OrderDto> fetchChunk(List<Integer> chunk) {
+        try {
+            Map<Integer, OrderDto> orders = this.gateway.fetchOrders(chunk);
+            // The batch endpoint leaves out ids it does not know
+            this.missingOrderCache.recordMissing(chunk.stream()
+                    .filter(orderId -> !orders.containsKey(orderId))
+                    .collect(Collectors.toList()));
+            return orders;
+        } catch (RestClientException e) {
+            log.warn("Batch order lookup failed for {} ids, falling back to single lookups: {}",
+                    chunk.size(), e.getMessage());
+            return fetchOneByOne(chunk);
+        }
+    }
+
+    private Map<Integer, OrderDto> fetchOneByOne(List<Integer> chunk) {
+        List<OrderDto> results = this.parallelOrderLookup.fetchAll(chunk,
+                orderId -> this.singleFlight.execute(orderId,
+                        id -> rememberIfMissing(id, this.gateway::fetchOrder)));
+        Map<Integer, OrderDto> orders = new HashMap<>(chunk.size() * 2);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (results.get(i) != null) {
+                orders.put(chunk.get(i), results.get(i));
+            }
+        }
+        return orders;
+    }
+
+}
@@ -2,6 +2,7 @@ package com.selimhorri.app.config.client;
 
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,14 +10,20 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration
+@EnableConfigurationProperties(OrderClientProperties.class)
 public class ClientConfig {
 
 	@LoadBalanced
 	@Bean
-	public RestTemplate restTemplateBean() {
-		CloseableHttpClient httpClient = HttpClients.createDefault();
+	public RestTemplate restTemplateBean(final OrderClientProperties properties) {
+		CloseableHttpClient httpClient = HttpClients.custom()
+				.setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+				.setMaxConnTotal(properties.getMaxConnectionsTotal())
+				.build();
 		HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+		requestFactory.setConnectTimeout(Math.toIntExact(properties.getConnectTimeout().toMillis()));
+		requestFactory.setReadTimeout(Math.toIntExact(properties.getReadTimeout().toMillis()));
 		return new RestTemplate(requestFactory);
 	}
 
-}
\ No newline at end of file
+}
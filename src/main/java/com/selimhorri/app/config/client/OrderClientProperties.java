@@ -0,0 +1,118 @@
+package com.selimhorri.app.config.client;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import com.selimhorri.app.constant.AppConstant;
+
+import lombok.Data;
+
+@ConfigurationProperties(prefix = "app.order-client")
+@Data
+public class OrderClientProperties {
+
+	private String baseUrl = AppConstant.DiscoveredDomainsApi.ORDER_SERVICE_API_URL;
+	private int maxConnectionsPerRoute = 20;
+	private int maxConnectionsTotal = 50;
+
+	/**
+	 * Socket timeouts of every ORDER-SERVICE call; they also bound how long a lookup
+	 * waits for the micro-batch it joined
+	 */
+	private Duration connectTimeout = Duration.ofSeconds(2);
+	private Duration readTimeout = Duration.ofSeconds(5);
+	private Batch batch = new Batch();
+	private Parallel parallel = new Parallel();
+	private Cache cache = new Cache();
+	private NegativeCache negativeCache = new NegativeCache();
+	private MicroBatch microBatch = new MicroBatch();
+
+	@Data
+	public static class Batch {
+
+		/**
+		 * Resolve listings through the multi-id endpoint of ORDER-SERVICE,
+		 * falling back to single lookups when it is unavailable
+		 */
+		private boolean enabled = true;
+		private String path = "/batch";
+		private int chunkSize = 100;
+
+	}
+
+	@Data
+	public static class Parallel {
+
+		/**
+		 * Fan single order lookups out on the order lookup executor instead of
+		 * running them one after another on the request thread
+		 */
+		private boolean enabled = true;
+		private int maxConcurrency = 8;
+		private int queueCapacity = 200;
+		private Duration deadline = Duration.ofSeconds(5);
+
+	}
+
+	@Data
+	public static class Cache {
+
+		private boolean enabled = true;
+
+		/**
+		 * Hard TTL: no snapshot is served once it is older than this
+		 */
+		private Duration expireAfterWrite = Duration.ofSeconds(30);
+		private Duration expireAfterAccess = Duration.ofSeconds(10);
+
+		/**
+		 * Soft TTL: older snapshots are refreshed, and until then either served
+		 * flagged as stale or reloaded synchronously
+		 */
+		private Duration refreshAfter = Duration.ofSeconds(10);
+		private boolean staleWhileRevalidate = true;
+		private int refreshThreads = 2;
+
+		/**
+		 * Upper bound for the estimated heap footprint of cached orders,
+		 * kept small next to the 256 MB container heap
+		 */
+		private DataSize maximumWeight = DataSize.ofMegabytes(16);
+
+	}
+
+	@Data
+	public static class NegativeCache {
+
+		/**
+		 * Remember orders ORDER-SERVICE answered 404 for, so payments pointing at
+		 * missing orders do not cost a remote call on every read
+		 */
+		private boolean enabled = true;
+		private Duration ttl = Duration.ofSeconds(30);
+		private long maximumSize = 10_000;
+
+	}
+
+	@Data
+	public static class MicroBatch {
+
+		/**
+		 * Collect single lookups from concurrent requests into batch requests
+		 */
+		private boolean enabled = true;
+		private Duration window = Duration.ofMillis(2);
+		private int maxBatchSize = 50;
+
+		/**
+		 * Below this many concurrent single lookups, call ORDER-SERVICE directly
+		 * rather than waiting out the batching window
+		 */
+		private int minConcurrency = 4;
+		private int flushThreads = 2;
+
+	}
+
+}
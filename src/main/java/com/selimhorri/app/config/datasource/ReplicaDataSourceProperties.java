@@ -0,0 +1,33 @@
+package com.selimhorri.app.config.datasource;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@ConfigurationProperties(prefix = "app.datasource.replica")
+@Data
+public class ReplicaDataSourceProperties {
+
+	/**
+	 * JDBC URL of the read replica; while unset every transaction uses spring.datasource.
+	 * The replica pool itself is tuned under {@code app.datasource.replica.hikari}.
+	 */
+	private String url;
+	private String username;
+	private String password;
+
+	/**
+	 * Read-only transactions go back to the primary while the replica trails it by more
+	 * than this, or while its lag cannot be read
+	 */
+	private Duration maxLag = Duration.ofSeconds(5);
+
+	/**
+	 * Pause between lag probes; a probe older than three times this no longer vouches
+	 * for the replica
+	 */
+	private Duration lagProbeDelay = Duration.ofSeconds(5);
+
+}
@@ -0,0 +1,198 @@
+package com.selimhorri.app.config.payment;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * The {@code *Delay} durations also drive {@code @Scheduled} fixed delays, which only read
+ * ISO-8601 (PT10M rather than 10m).
+ */
+@ConfigurationProperties(prefix = "app.payments")
+@Data
+public class PaymentProperties {
+
+	private Page page = new Page();
+	private Lookup lookup = new Lookup();
+	private Export export = new Export();
+	private Outbox outbox = new Outbox();
+	private Idempotency idempotency = new Idempotency();
+	private Bulk bulk = new Bulk();
+	private Retry retry = new Retry();
+	private Archive archive = new Archive();
+	private Partitions partitions = new Partitions();
+
+	@Data
+	public static class Page {
+
+		private int defaultSize = 50;
+
+		/**
+		 * Larger requested page sizes are capped to this, keeping each page
+		 * well within the container heap
+		 */
+		private int maxSize = 500;
+
+	}
+
+	@Data
+	public static class Lookup {
+
+		/**
+		 * Most ids accepted by one multi-get request, bounding the IN list sent to the database
+		 */
+		private int maxIds = 500;
+
+	}
+
+	@Data
+	public static class Export {
+
+		/**
+		 * Rows pulled from the database cursor per round trip; on MySQL this needs
+		 * {@code useCursorFetch=true} on the JDBC URL to avoid buffering the whole result
+		 */
+		private int fetchSize = 500;
+
+		/**
+		 * Rows buffered per ORDER-SERVICE lookup when exporting with expanded orders
+		 */
+		private int orderChunkSize = 100;
+
+	}
+
+	@Data
+	public static class Outbox {
+
+		/**
+		 * Pause between relay runs
+		 */
+		private Duration relayDelay = Duration.ofSeconds(1);
+		private int batchSize = 50;
+
+		/**
+		 * How long a claimed entry is reserved for the relay that claimed it; entries of a
+		 * relay that died are picked up again once this runs out
+		 */
+		private Duration lease = Duration.ofSeconds(30);
+		private int maxAttempts = 10;
+		private Duration initialBackoff = Duration.ofSeconds(1);
+		private Duration maxBackoff = Duration.ofMinutes(5);
+
+	}
+
+	@Data
+	public static class Idempotency {
+
+		/**
+		 * How long a completed request is replayed for its Idempotency-Key
+		 */
+		private Duration ttl = Duration.ofHours(24);
+
+		/**
+		 * A key left in progress longer than this (its request died) may be taken over
+		 */
+		private Duration inProgressTimeout = Duration.ofMinutes(1);
+
+		/**
+		 * In-memory front of recently completed keys, so hot replays skip the database
+		 */
+		private long frontMaximumSize = 10_000;
+		private Duration frontTtl = Duration.ofMinutes(10);
+
+		/**
+		 * Pause between purges of expired keys
+		 */
+		private Duration purgeDelay = Duration.ofMinutes(10);
+		private int maxKeyLength = 128;
+
+	}
+
+	@Data
+	public static class Bulk {
+
+		/**
+		 * Most payments accepted by one bulk creation request
+		 */
+		private int maxItems = 1000;
+
+		/**
+		 * Rows sent per JDBC batch; on MySQL, {@code rewriteBatchedStatements=true} on the
+		 * JDBC URL turns each batch into one multi-row INSERT
+		 */
+		private int insertBatchSize = 500;
+
+	}
+
+	@Data
+	public static class Retry {
+
+		/**
+		 * Attempts, the first included, of an update that lost an optimistic-lock race
+		 * before the conflict is returned to the caller
+		 */
+		private int maxAttempts = 3;
+
+		/**
+		 * Backoff before the first retry, doubled per retry up to {@code maxBackoff};
+		 * the actual pause is drawn at random below it, so racing requests spread out
+		 */
+		private Duration initialBackoff = Duration.ofMillis(20);
+		private Duration maxBackoff = Duration.ofMillis(200);
+
+	}
+
+	@Data
+	public static class Archive {
+
+		/**
+		 * COMPLETED and CANCELED payments created longer ago than this move to payments_archive
+		 */
+		private Duration minAge = Duration.ofDays(30);
+
+		/**
+		 * Payments moved per transaction; a run stops after {@code maxChunksPerRun} chunks
+		 * and the next one carries on where it left off
+		 */
+		private int chunkSize = 500;
+		private int maxChunksPerRun = 100;
+
+		/**
+		 * Pause between archiver runs
+		 */
+		private Duration runDelay = Duration.ofHours(1);
+
+	}
+
+	@Data
+	public static class Partitions {
+
+		/**
+		 * Maintains the monthly partitions of payments on MySQL; elsewhere the job finds
+		 * no partitions and does nothing
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Months past the current one that always have a partition of their own, so new
+		 * payments never land in the catch-all partition
+		 */
+		private int monthsAhead = 3;
+
+		/**
+		 * Partitions whose month ended longer ago than this are dropped once empty, i.e. the
+		 * archiver has moved their final payments out and none is unfinished; zero keeps
+		 * every partition
+		 */
+		private Duration retention = Duration.ofDays(365);
+
+		/**
+		 * Pause between maintenance runs
+		 */
+		private Duration maintenanceDelay = Duration.ofHours(6);
+
+	}
+
+}
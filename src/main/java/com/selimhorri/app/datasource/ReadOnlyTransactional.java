@@ -0,0 +1,23 @@
+package com.selimhorri.app.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Runs the annotated method in a read-only transaction, which is served by the read replica
+ * when one is configured. Takes precedence over a class-level {@code javax.transaction.Transactional},
+ * which cannot express read-only. Only for methods that write nothing and can live with
+ * reading up to {@code app.datasource.replica.max-lag} behind the primary.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+
+}
@@ -0,0 +1,107 @@
+package com.selimhorri.app.datasource;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.selimhorri.app.config.datasource.ReplicaDataSourceProperties;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads how far the replica trails the primary from its replication status. The replica is
+ * usable only while the latest probe is recent and reported a lag within {@code max-lag};
+ * before the first probe, with replication stopped, or with the replica unreachable, reads
+ * stay on the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ReplicaDataSourceProperties properties;
+
+    // MySQL before 8.0.22 only knows SHOW SLAVE STATUS and Seconds_Behind_Master
+    private volatile boolean legacyStatus;
+    private volatile Duration lag;
+    private volatile Instant probedAt;
+
+    public ReplicaLagMonitor(final DataSource replicaDataSource,
+            final ReplicaDataSourceProperties properties,
+            final MeterRegistry meterRegistry) {
+        this.replicaJdbcTemplate = new JdbcTemplate(replicaDataSource);
+        this.properties = properties;
+
+        Gauge.builder("ecommerce.payments.datasource.replica.lag.seconds", this, ReplicaLagMonitor::lagSeconds)
+                .description("Replication lag of the read replica at the latest probe; NaN while unknown")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-probe-delay:PT5S}")
+    public void probe() {
+        boolean wasUsable = isReplicaUsable();
+        try {
+            this.lag = readLag();
+        } catch (RuntimeException e) {
+            this.lag = null;
+            log.debug("Replica lag probe failed: {}", e.getMessage());
+        }
+        this.probedAt = Instant.now();
+
+        // Only switches between the pools are worth a line in the log
+        boolean usable = isReplicaUsable();
+        if (wasUsable && !usable) {
+            log.warn("Replica lag is {} (max {}); read-only transactions use the primary",
+                    this.lag == null ? "unknown" : this.lag, this.properties.getMaxLag());
+        } else if (!wasUsable && usable) {
+            log.info("Replica lag is {}; read-only transactions use the replica", this.lag);
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        Duration current = this.lag;
+        Instant at = this.probedAt;
+        return current != null && at != null
+                && current.compareTo(this.properties.getMaxLag()) <= 0
+                && at.isAfter(Instant.now().minus(this.properties.getLagProbeDelay().multipliedBy(3)));
+    }
+
+    private Duration readLag() {
+        if (!this.legacyStatus) {
+            try {
+                return this.replicaJdbcTemplate.query("SHOW REPLICA STATUS", lagColumn("Seconds_Behind_Source"));
+            } catch (BadSqlGrammarException e) {
+                this.legacyStatus = true;
+            }
+        }
+        return this.replicaJdbcTemplate.query("SHOW SLAVE STATUS", lagColumn("Seconds_Behind_Master"));
+    }
+
+    /**
+     * A server that replicates from nobody is not behind anyone; a NULL lag means the
+     * replication threads are not running
+     */
+    private static ResultSetExtractor<Duration> lagColumn(String column) {
+        return resultSet -> {
+            if (!resultSet.next()) {
+                return Duration.ZERO;
+            }
+            long seconds = resultSet.getLong(column);
+            return resultSet.wasNull() ? null : Duration.ofSeconds(seconds);
+        };
+    }
+
+    private double lagSeconds() {
+        Duration current = this.lag;
+        return current == null ? Double.NaN : current.toMillis() / 1000.0;
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.selimhorri.app.datasource;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hands read-only transactions a replica connection while {@link ReplicaLagMonitor} vouches
+ * for the replica, and everything else (writes, reads outside a transaction, reads while the
+ * replica lags) a primary connection. Must sit behind a {@link LazyConnectionDataSourceProxy}:
+ * the read-only flag is only bound after the transaction manager has asked for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final Counter toPrimary;
+    private final Counter toReplica;
+    private final Counter fallbacks;
+
+    public ReplicaRoutingDataSource(final DataSource primaryDataSource,
+            final DataSource replicaDataSource,
+            final ReplicaLagMonitor lagMonitor,
+            final MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(PRIMARY, primaryDataSource, REPLICA, replicaDataSource));
+        setDefaultTargetDataSource(primaryDataSource);
+
+        this.toPrimary = routedCounter(PRIMARY, meterRegistry);
+        this.toReplica = routedCounter(REPLICA, meterRegistry);
+        this.fallbacks = Counter.builder("ecommerce.payments.datasource.replica.fallbacks.total")
+                .description("Read-only transactions sent to the primary because the replica lagged or could not be probed")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            this.toPrimary.increment();
+            return PRIMARY;
+        }
+        if (!this.lagMonitor.isReplicaUsable()) {
+            this.fallbacks.increment();
+            this.toPrimary.increment();
+            return PRIMARY;
+        }
+        this.toReplica.increment();
+        return REPLICA;
+    }
+
+    private static Counter routedCounter(String pool, MeterRegistry meterRegistry) {
+        return Counter.builder("ecommerce.payments.datasource.routed.total")
+                .description("Connections handed out by the routing datasource, per pool")
+                .tag("service", "payment-service")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+}
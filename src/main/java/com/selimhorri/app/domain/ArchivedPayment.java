@@ -0,0 +1,64 @@
+package com.selimhorri.app.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import org.hibernate.annotations.Immutable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A COMPLETED or CANCELED payment moved out of {@code payments} by the archiver. Rows are
+ * copied in with SQL and never change afterwards.
+ */
+@Entity
+@Immutable
+@Table(name = "payments_archive", uniqueConstraints = {
+		@UniqueConstraint(name = "uk_payments_archive_order_id", columnNames = "order_id")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public final class ArchivedPayment implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	@Id
+	@Column(name = "payment_id", unique = true, nullable = false, updatable = false)
+	private Integer paymentId;
+	
+	@Column(name = "order_id")
+	private Integer orderId;
+	
+	@Column(name = "is_payed")
+	private Boolean isPayed;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(name = "payment_status")
+	private PaymentStatus paymentStatus;
+	
+	@Column(name = "version", nullable = false)
+	private Long version;
+	
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+	
+	@Column(name = "updated_at")
+	private Instant updatedAt;
+	
+	@Column(name = "archived_at", nullable = false)
+	private Instant archivedAt;
+	
+}
@@ -0,0 +1,62 @@
+package com.selimhorri.app.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+
+import com.selimhorri.app.domain.enums.IdempotencyStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a request sent with an {@code Idempotency-Key}, replayed to retries of it
+ * until {@code expiresAt}.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+		@Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Builder
+public final class IdempotencyRecord extends AbstractMappedEntity implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	@Id
+	@Column(name = "idempotency_key", length = 128, nullable = false, updatable = false)
+	private String idempotencyKey;
+	
+	@Column(name = "request_hash", length = 64, nullable = false)
+	private String requestHash;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", length = 16, nullable = false)
+	private IdempotencyStatus status;
+	
+	@Column(name = "response_status")
+	private Integer responseStatus;
+	
+	// LONGTEXT (a CLOB on H2): the stored response embeds the whole order
+	@Lob
+	@Column(name = "response_body")
+	private String responseBody;
+	
+	@Column(name = "expires_at", nullable = false)
+	private Instant expiresAt;
+	
+}
@@ -9,7 +9,14 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +25,13 @@ import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+		@Index(name = "idx_payments_created_at_id", columnList = "created_at, payment_id"),
+		@Index(name = "idx_payments_status_created_at", columnList = "payment_status, created_at")
+}, uniqueConstraints = {
+		// On partitioned MySQL tables payment_order_keys enforces this instead (V12)
+		@UniqueConstraint(name = "uk_payments_order_id", columnNames = "order_id")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @EqualsAndHashCode(callSuper = true)
@@ -28,8 +41,23 @@ public final class Payment extends AbstractMappedEntity implements Serializable
 	
 	private static final long serialVersionUID = 1L;
 	
+	public static final String ID_SEQUENCE_TABLE = "payment_id_sequence";
+	public static final int ID_ALLOCATION_SIZE = 50;
+	
+	/**
+	 * Drawn from payment_id_sequence in blocks of {@link #ID_ALLOCATION_SIZE}: one table round
+	 * trip per block instead of a generated-key round trip per row, so inserts can be batched.
+	 * The table is used on H2 too, so both databases allocate ids the same way.
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_id_generator")
+	@GenericGenerator(name = "payment_id_generator", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+			parameters = {
+					@Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = ID_SEQUENCE_TABLE),
+					@Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true"),
+					@Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_ALLOCATION_SIZE),
+					@Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+			})
 	@Column(name = "payment_id", unique = true, nullable = false, updatable = false)
 	private Integer paymentId;
 	
@@ -43,6 +71,10 @@ public final class Payment extends AbstractMappedEntity implements Serializable
 	@Column(name = "payment_status")
 	private PaymentStatus paymentStatus;
 	
+	@Version
+	@Column(name = "version", nullable = false)
+	private Long version;
+	
 }
 
 
@@ -0,0 +1,63 @@
+package com.selimhorri.app.domain;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import com.selimhorri.app.domain.enums.PaymentEvent;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One status transition of a payment. Rows are only ever inserted, in the transaction
+ * that applies the transition, so a payment's history is complete and in order.
+ */
+@Entity
+@Table(name = "payment_status_history", indexes = {
+		@Index(name = "idx_status_history_payment_changed", columnList = "payment_id, changed_at"),
+		@Index(name = "idx_status_history_to_status_changed", columnList = "to_status, changed_at")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public final class PaymentStatusHistory implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "history_id", unique = true, nullable = false, updatable = false)
+	private Long historyId;
+	
+	@Column(name = "payment_id", nullable = false, updatable = false)
+	private Integer paymentId;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(name = "from_status", nullable = false, updatable = false, length = 32)
+	private PaymentStatus fromStatus;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(name = "to_status", nullable = false, updatable = false, length = 32)
+	private PaymentStatus toStatus;
+	
+	@Enumerated(EnumType.STRING)
+	@Column(name = "event", nullable = false, updatable = false, length = 16)
+	private PaymentEvent event;
+	
+	@Column(name = "changed_at", nullable = false, updatable = false)
+	private Instant changedAt;
+	
+}
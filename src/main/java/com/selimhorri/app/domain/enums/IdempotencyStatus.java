@@ -0,0 +1,6 @@
+package com.selimhorri.app.domain.enums;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,15 @@
+package com.selimhorri.app.domain.enums;
+
+/**
+ * What can happen to a payment; the transition table of
+ * {@link com.selimhorri.app.statemachine.PaymentStateMachine} decides where each leads
+ */
+public enum PaymentEvent {
+	
+	/**
+	 * One step forward: NOT_STARTED to IN_PROGRESS, IN_PROGRESS to COMPLETED
+	 */
+	ADVANCE,
+	CANCEL
+	
+}
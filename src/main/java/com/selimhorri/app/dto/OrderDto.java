@@ -7,6 +7,8 @@ import org.springframework.format.annotation.DateTimeFormat;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
@@ -21,7 +23,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class OrderDto implements Serializable {
 	
 	private static final long serialVersionUID = 1L;
@@ -37,6 +39,9 @@ public class OrderDto implements Serializable {
 	private Double orderFee;
 	private String orderStatus;
 	
+	@JsonInclude(Include.NON_NULL)
+	private Boolean stale;
+	
 }
 
 
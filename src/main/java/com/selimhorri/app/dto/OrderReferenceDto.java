@@ -0,0 +1,19 @@
+package com.selimhorri.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+/**
+ * An order known only by its id, for payments read without {@code expand=order}.
+ * Serializes as {@code {"orderId":N}}; a resolved {@link OrderDto} keeps its null fields.
+ */
+@JsonInclude(Include.NON_NULL)
+public class OrderReferenceDto extends OrderDto {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public OrderReferenceDto(final Integer orderId) {
+		setOrderId(orderId);
+	}
+	
+}
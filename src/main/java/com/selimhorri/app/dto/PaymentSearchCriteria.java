@@ -0,0 +1,31 @@
+package com.selimhorri.app.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import com.selimhorri.app.domain.PaymentStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Optional filters of a payment search; absent fields do not restrict the result.
+ * The creation window includes {@code createdFrom} and excludes {@code createdTo}.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class PaymentSearchCriteria implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private PaymentStatus paymentStatus;
+	private Integer orderId;
+	private Boolean isPayed;
+	private Instant createdFrom;
+	private Instant createdTo;
+	
+}
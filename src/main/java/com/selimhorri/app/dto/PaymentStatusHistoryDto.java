@@ -0,0 +1,33 @@
+package com.selimhorri.app.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class PaymentStatusHistoryDto implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private PaymentStatus fromStatus;
+	private PaymentStatus toStatus;
+	private PaymentEvent event;
+	private Instant changedAt;
+	
+	/**
+	 * How long the payment was in {@code fromStatus}, counted from the previous transition
+	 * or, for the first one, from the payment's creation
+	 */
+	private Long millisInFromStatus;
+	
+}
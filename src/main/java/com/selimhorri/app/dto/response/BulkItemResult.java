@@ -0,0 +1,45 @@
+package com.selimhorri.app.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.selimhorri.app.exception.ErrorCode;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a bulk request; {@code index} is its position in the request
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+@JsonInclude(Include.NON_NULL)
+public class BulkItemResult<T> {
+	
+	private int index;
+	private boolean success;
+	private T item;
+	private String errorCode;
+	private String message;
+	
+	public static <T> BulkItemResult<T> success(final int index, final T item) {
+		return BulkItemResult.<T>builder()
+				.index(index)
+				.success(true)
+				.item(item)
+				.build();
+	}
+	
+	public static <T> BulkItemResult<T> failure(final int index, final ErrorCode errorCode, final String message) {
+		return BulkItemResult.<T>builder()
+				.index(index)
+				.success(false)
+				.errorCode(errorCode.getCode())
+				.message(message)
+				.build();
+	}
+	
+}
@@ -0,0 +1,29 @@
+package com.selimhorri.app.dto.response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class BulkOperationResponse<T> {
+	
+	private int succeeded;
+	private int failed;
+	
+	/**
+	 * One entry per requested item, in request order
+	 */
+	private List<BulkItemResult<T>> results;
+	
+	public static <T> BulkOperationResponse<T> of(final List<BulkItemResult<T>> results) {
+		int succeeded = (int) results.stream().filter(BulkItemResult::isSuccess).count();
+		return new BulkOperationResponse<>(succeeded, results.size() - succeeded, results);
+	}
+	
+}
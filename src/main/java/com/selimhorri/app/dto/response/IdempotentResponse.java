@@ -0,0 +1,22 @@
+package com.selimhorri.app.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class IdempotentResponse<T> {
+	
+	private int status;
+	private T body;
+	
+	/**
+	 * True when the body is the stored outcome of an earlier request with the same key
+	 */
+	private boolean replayed;
+	
+}
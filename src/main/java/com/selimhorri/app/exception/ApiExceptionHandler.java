@@ -20,6 +20,7 @@ import com.selimhorri.app.exception.custom.DuplicateResourceException;
 import com.selimhorri.app.exception.custom.ExternalServiceException;
 import com.selimhorri.app.exception.custom.InvalidInputException;
 import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
+import com.selimhorri.app.exception.custom.PaymentConflictException;
 import com.selimhorri.app.exception.custom.ResourceNotFoundException;
 
 import lombok.extern.slf4j.Slf4j;
@@ -73,6 +74,28 @@ public class ApiExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
     }
     
+    @ExceptionHandler(PaymentConflictException.class)
+    public ResponseEntity<ErrorResponse> handlePaymentConflictException(
+            PaymentConflictException ex,
+            HttpServletRequest request) {
+        
+        String traceId = generateTraceId();
+        
+        log.warn("Payment conflict - TraceId: {} - Path: {} - Message: {}", 
+                traceId, request.getRequestURI(), ex.getMessage());
+        
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.CONFLICT.value())
+                .errorCode(ex.getErrorCode().getCode())
+                .message(ex.getMessage())
+                .path(request.getRequestURI())
+                .traceId(traceId)
+                .build();
+        
+        return new ResponseEntity<>(errorResponse, HttpStatus.CONFLICT);
+    }
+    
     @ExceptionHandler(InvalidPaymentStatusException.class)
     public ResponseEntity<ErrorResponse> handleInvalidPaymentStatusException(
             InvalidPaymentStatusException ex,
@@ -15,17 +15,21 @@ public enum ErrorCode {
     INVALID_INPUT("ERR_2001", "Invalid input provided"),
     MISSING_REQUIRED_FIELD("ERR_2002", "Required field is missing"),
     INVALID_FORMAT("ERR_2003", "Invalid data format"),
+    IDEMPOTENCY_KEY_MISMATCH("ERR_2004", "Idempotency key %s was already used for a different request"),
     
     PAYMENT_NOT_FOUND("ERR_3000", "Payment with id %s not found"),
     ORDER_NOT_FOUND("ERR_3001", "Order with id %s not found"),
     
-    PAYMENT_ALREADY_EXISTS("ERR_4000", "Payment already exists for this order"),
+    PAYMENT_ALREADY_EXISTS("ERR_4000", "A payment already exists for order %s"),
     DUPLICATE_RESOURCE("ERR_4001", "Resource already exists"),
+    IDEMPOTENCY_KEY_IN_PROGRESS("ERR_4002", "A request with idempotency key %s is still being processed"),
     
     INVALID_PAYMENT_STATUS("ERR_5000", "Invalid payment status transition"),
     PAYMENT_ALREADY_COMPLETED("ERR_5001", "Payment is already completed and cannot be modified"),
     PAYMENT_ALREADY_CANCELED("ERR_5002", "Payment is already canceled and cannot be modified"),
     INVALID_ORDER_STATUS("ERR_5003", "Order status is invalid for payment processing"),
+    PAYMENT_CONCURRENTLY_MODIFIED("ERR_5004", "Payment %s was modified by another request; retry"),
+    PAYMENTS_CONCURRENTLY_MODIFIED("ERR_5005", "%d of %d payments were modified by another request; retry"),
     
     DATABASE_ERROR("ERR_7000", "Database operation failed"),
     CONSTRAINT_VIOLATION("ERR_7001", "Database constraint violation"),
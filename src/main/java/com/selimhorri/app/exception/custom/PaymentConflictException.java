@@ -0,0 +1,25 @@
+package com.selimhorri.app.exception.custom;
+
+import com.selimhorri.app.exception.ErrorCode;
+
+/**
+ * A payment changed between being read and being updated by the same request
+ */
+public class PaymentConflictException extends RuntimeException {
+    
+    private final ErrorCode errorCode;
+    
+    public PaymentConflictException(ErrorCode errorCode) {
+        super(errorCode.getMessage());
+        this.errorCode = errorCode;
+    }
+    
+    public PaymentConflictException(ErrorCode errorCode, Object... args) {
+        super(errorCode.formatMessage(args));
+        this.errorCode = errorCode;
+    }
+    
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,50 @@
+package com.selimhorri.app.helper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.InvalidInputException;
+
+import lombok.Value;
+
+/**
+ * Position in the (created_at, payment_id) ordering of payments, exchanged with
+ * clients as an opaque URL-safe token.
+ */
+@Value
+public class PaymentCursor {
+
+	private static final String VERSION = "v1";
+
+	Instant createdAt;
+	Integer paymentId;
+
+	public static PaymentCursor after(final Payment payment) {
+		return new PaymentCursor(payment.getCreatedAt(), payment.getPaymentId());
+	}
+
+	public static PaymentCursor decode(final String token) {
+		try {
+			String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+			if (parts.length != 4 || !VERSION.equals(parts[0])) {
+				throw new IllegalArgumentException("Unknown cursor layout");
+			}
+			return new PaymentCursor(
+					Instant.ofEpochSecond(Long.parseLong(parts[1]), Long.parseLong(parts[2])),
+					Integer.valueOf(parts[3]));
+		} catch (IllegalArgumentException | DateTimeException e) {
+			throw new InvalidInputException(ErrorCode.INVALID_FORMAT, "Invalid page cursor");
+		}
+	}
+
+	public String encode() {
+		String raw = VERSION + ":" + this.createdAt.getEpochSecond() + ":" + this.createdAt.getNano()
+				+ ":" + this.paymentId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -1,8 +1,10 @@
 package com.selimhorri.app.helper;
 
+import com.selimhorri.app.domain.ArchivedPayment;
 import com.selimhorri.app.domain.Payment;
 import com.selimhorri.app.domain.PaymentStatus;
 import com.selimhorri.app.dto.OrderDto;
+import com.selimhorri.app.dto.OrderReferenceDto;
 import com.selimhorri.app.dto.PaymentDto;
 
 public interface PaymentMappingHelper {
@@ -19,6 +21,28 @@ public interface PaymentMappingHelper {
 				.build();
 	}
 
+	public static PaymentDto map(final ArchivedPayment archivedPayment) {
+		return PaymentDto.builder()
+				.paymentId(archivedPayment.getPaymentId())
+				.isPayed(archivedPayment.getIsPayed())
+				.paymentStatus(archivedPayment.getPaymentStatus())
+				.orderDto(
+						OrderDto.builder()
+								.orderId(archivedPayment.getOrderId())
+								.build())
+				.build();
+	}
+
+	/**
+	 * Leaves only the order id on a payment whose order is not expanded
+	 */
+	public static PaymentDto referenceOrder(final PaymentDto paymentDto) {
+		if (paymentDto.getOrderDto() != null) {
+			paymentDto.setOrderDto(new OrderReferenceDto(paymentDto.getOrderDto().getOrderId()));
+		}
+		return paymentDto;
+	}
+
 	public static Payment map(final PaymentDto paymentDto) {
 		return Payment.builder()
 				.paymentId(paymentDto.getPaymentId())
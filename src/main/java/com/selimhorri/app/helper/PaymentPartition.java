@@ -0,0 +1,68 @@
+package com.selimhorri.app.helper;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+import lombok.Value;
+
+/**
+ * One monthly range partition of {@code payments} on MySQL: {@code p202610} holds the rows
+ * created in October 2026 UTC and is bounded by UNIX_TIMESTAMP of the first second of the
+ * next month. Rows past the newest month land in the {@value #CATCH_ALL} partition.
+ */
+@Value
+public class PaymentPartition {
+
+	public static final String CATCH_ALL = "pmax";
+
+	private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+	YearMonth month;
+
+	public static PaymentPartition of(final Instant instant) {
+		return new PaymentPartition(YearMonth.from(instant.atOffset(ZoneOffset.UTC)));
+	}
+
+	/**
+	 * @return the monthly partition of that name; empty for {@value #CATCH_ALL} and foreign names
+	 */
+	public static Optional<PaymentPartition> parse(final String name) {
+		try {
+			return Optional.of(new PaymentPartition(YearMonth.parse(name, NAME)));
+		} catch (DateTimeParseException e) {
+			return Optional.empty();
+		}
+	}
+
+	public static String catchAllDefinition() {
+		return "PARTITION " + CATCH_ALL + " VALUES LESS THAN MAXVALUE";
+	}
+
+	public String getName() {
+		return this.month.format(NAME);
+	}
+
+	/**
+	 * First instant past this partition
+	 */
+	public Instant getEnd() {
+		return this.month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+	}
+
+	public PaymentPartition plusMonths(final long months) {
+		return new PaymentPartition(this.month.plusMonths(months));
+	}
+
+	public boolean isAfter(final PaymentPartition other) {
+		return this.month.isAfter(other.month);
+	}
+
+	public String definition() {
+		return "PARTITION " + getName() + " VALUES LESS THAN (" + getEnd().getEpochSecond() + ")";
+	}
+
+}
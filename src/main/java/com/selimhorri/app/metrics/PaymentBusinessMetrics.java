@@ -1,10 +1,15 @@
 package com.selimhorri.app.metrics;
 
+import java.time.Instant;
+import java.util.List;
+
 import javax.annotation.PostConstruct;
 
 import org.springframework.stereotype.Component;
 
 import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.statemachine.PaymentTransition;
+import com.selimhorri.app.statemachine.PaymentTransitionListener;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
@@ -15,7 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 @Slf4j
 @RequiredArgsConstructor
-public class PaymentBusinessMetrics {
+public class PaymentBusinessMetrics implements PaymentTransitionListener {
 
     private final MeterRegistry meterRegistry;
     
@@ -87,57 +92,63 @@ public class PaymentBusinessMetrics {
      * Registra un pago exitoso
      */
     public void recordPaymentSuccess() {
+        recordPaymentSuccess(1);
+    }
+
+    private void recordPaymentSuccess(int count) {
         if (paymentsSuccessfulCounter == null) {
             initializeMetrics();
         }
         
-        paymentsSuccessfulCounter.increment();
-        log.debug("Recorded successful payment");
+        paymentsSuccessfulCounter.increment(count);
+        log.debug("Recorded {} successful payments", count);
     }
 
     /**
      * Registra un pago fallido
      */
     public void recordPaymentFailure() {
+        recordPaymentFailure(1);
+    }
+
+    private void recordPaymentFailure(int count) {
         if (paymentsFailedCounter == null) {
             initializeMetrics();
         }
         
-        paymentsFailedCounter.increment();
-        log.debug("Recorded failed payment");
+        paymentsFailedCounter.increment(count);
+        log.debug("Recorded {} failed payments", count);
     }
 
     /**
-     * Registra un cambio de estado de pago
+     * Registra el cambio de estado de varios pagos, con un incremento por contador
      */
-    public void recordPaymentStatusChange(PaymentStatus oldStatus, PaymentStatus newStatus) {
+    @Override
+    public void onTransition(PaymentTransition transition, List<Integer> paymentIds, Instant appliedAt) {
+        int count = paymentIds.size();
+        
         // Decrementar el estado anterior
         Counter.builder("ecommerce.payments.by.status")
-                .tag("status", oldStatus.name())
+                .tag("status", transition.getFrom().name())
                 .tag("service", "payment-service")
                 .register(meterRegistry)
-                .increment(-1);
+                .increment(-count);
         
         // Incrementar el nuevo estado
         Counter.builder("ecommerce.payments.by.status")
-                .tag("status", newStatus.name())
+                .tag("status", transition.getTo().name())
                 .tag("service", "payment-service")
                 .register(meterRegistry)
-                .increment();
-        
-        // Si el nuevo estado es COMPLETED y el anterior NO era COMPLETED, registrar como exitoso
-        // (evita duplicar el conteo si ya estaba en COMPLETED)
-        if (newStatus == PaymentStatus.COMPLETED && oldStatus != PaymentStatus.COMPLETED) {
-            recordPaymentSuccess();
-        }
+                .increment(count);
         
-        // Si el nuevo estado es CANCELED y el anterior NO era CANCELED, registrar como fallido
-        // (evita duplicar el conteo si ya estaba en CANCELED)
-        if (newStatus == PaymentStatus.CANCELED && oldStatus != PaymentStatus.CANCELED) {
-            recordPaymentFailure();
+        // Éxito o fallo según la tabla de transiciones
+        if (transition.isCompleting()) {
+            recordPaymentSuccess(count);
+        } else if (transition.isCanceling()) {
+            recordPaymentFailure(count);
         }
         
-        log.debug("Recorded payment status change: {} -> {}", oldStatus, newStatus);
+        log.debug("Recorded payment status change: {} (x{})", transition, count);
     }
 
     /**
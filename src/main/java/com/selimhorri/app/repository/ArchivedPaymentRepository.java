@@ -0,0 +1,25 @@
+package com.selimhorri.app.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.selimhorri.app.domain.ArchivedPayment;
+
+public interface ArchivedPaymentRepository extends JpaRepository<ArchivedPayment, Integer> {
+	
+	/**
+	 * Answered from uk_payments_archive_order_id alone
+	 */
+	boolean existsByOrderId(final Integer orderId);
+	
+	/**
+	 * Those of the given orders whose payment has been archived
+	 */
+	@Query("SELECT a.orderId FROM ArchivedPayment a WHERE a.orderId IN :orderIds")
+	List<Integer> findPaidOrderIds(@Param("orderIds") final Collection<Integer> orderIds);
+	
+}
@@ -0,0 +1,47 @@
+package com.selimhorri.app.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.selimhorri.app.domain.IdempotencyRecord;
+import com.selimhorri.app.domain.enums.IdempotencyStatus;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+	
+	/**
+	 * Plain INSERT, unlike {@code save} which would merge into an existing row;
+	 * fails with a DataIntegrityViolationException when the key is already taken
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_hash, status, expires_at, created_at, updated_at) "
+			+ "VALUES (:key, :requestHash, 'IN_PROGRESS', :expiresAt, :now, :now)", nativeQuery = true)
+	int reserve(@Param("key") final String key,
+			@Param("requestHash") final String requestHash,
+			@Param("expiresAt") final Instant expiresAt,
+			@Param("now") final Instant now);
+	
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.status = :status "
+			+ "AND r.updatedAt < :staleBefore")
+	int deleteStale(@Param("key") final String key,
+			@Param("status") final IdempotencyStatus status,
+			@Param("staleBefore") final Instant staleBefore);
+	
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.status = :status")
+	int deleteByKeyAndStatus(@Param("key") final String key,
+			@Param("status") final IdempotencyStatus status);
+	
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+	int deleteExpired(@Param("now") final Instant now);
+	
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.expiresAt <= :now")
+	int deleteExpired(@Param("key") final String key, @Param("now") final Instant now);
+	
+}
@@ -0,0 +1,40 @@
+package com.selimhorri.app.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.selimhorri.app.domain.enums.OutboxStatus;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Plain JDBC writes to {@code order_status_outbox} for bulk payment creation.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderStatusOutboxJdbcRepository {
+
+	private static final String INSERT_PENDING = "INSERT INTO order_status_outbox "
+			+ "(order_id, status, attempts, next_attempt_at, created_at, updated_at) VALUES (?, ?, 0, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Queues one status update per order, due immediately, in JDBC batches of {@code batchSize}
+	 */
+	public void insertPending(final Collection<Integer> orderIds, final int batchSize) {
+		Timestamp now = Timestamp.from(Instant.now());
+		this.jdbcTemplate.batchUpdate(INSERT_PENDING, orderIds, Math.max(1, batchSize), (statement, orderId) -> {
+			statement.setInt(1, orderId);
+			statement.setString(2, OutboxStatus.PENDING.name());
+			statement.setTimestamp(3, now);
+			statement.setTimestamp(4, now);
+			statement.setTimestamp(5, now);
+		});
+	}
+
+}
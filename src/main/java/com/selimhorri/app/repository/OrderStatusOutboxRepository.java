@@ -0,0 +1,34 @@
+package com.selimhorri.app.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.selimhorri.app.domain.OrderStatusOutbox;
+import com.selimhorri.app.domain.enums.OutboxStatus;
+
+public interface OrderStatusOutboxRepository extends JpaRepository<OrderStatusOutbox, Long> {
+	
+	List<OrderStatusOutbox> findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+			final OutboxStatus status, final Instant now, final Pageable pageable);
+	
+	/**
+	 * Leases a due entry to the caller by moving its next attempt past the lease, provided
+	 * no other relay did so since it was read
+	 * 
+	 * @return 1 if the entry is now leased to the caller, 0 if another relay got it first
+	 */
+	@Modifying
+	@Query("UPDATE OrderStatusOutbox o SET o.nextAttemptAt = :leaseUntil "
+			+ "WHERE o.outboxId = :outboxId AND o.status = :status AND o.nextAttemptAt = :seenNextAttemptAt")
+	int claim(@Param("outboxId") final Long outboxId,
+			@Param("status") final OutboxStatus status,
+			@Param("seenNextAttemptAt") final Instant seenNextAttemptAt,
+			@Param("leaseUntil") final Instant leaseUntil);
+	
+}
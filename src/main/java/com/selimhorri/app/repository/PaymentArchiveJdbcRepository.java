@@ -0,0 +1,73 @@
+package com.selimhorri.app.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.selimhorri.app.domain.PaymentStatus;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Set-based moves from {@code payments} to {@code payments_archive}. Only payments in a
+ * final status are ever selected, copied or deleted, whatever ids are passed in.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentArchiveJdbcRepository {
+
+	private static final List<String> FINAL_STATUSES =
+			List.of(PaymentStatus.COMPLETED.name(), PaymentStatus.CANCELED.name());
+
+	// Served by idx_payments_status_created_at. Every statement repeats the cutoff so that on
+	// MySQL it only touches the monthly partitions before it.
+	private static final String SELECT_ARCHIVABLE = "SELECT payment_id FROM payments "
+			+ "WHERE payment_status IN (:statuses) AND created_at < :cutoff "
+			+ "ORDER BY created_at, payment_id LIMIT :limit";
+	private static final String COPY = "INSERT INTO payments_archive "
+			+ "(payment_id, order_id, is_payed, payment_status, version, created_at, updated_at, archived_at) "
+			+ "SELECT payment_id, order_id, is_payed, payment_status, version, created_at, updated_at, :archivedAt "
+			+ "FROM payments WHERE payment_id IN (:paymentIds) AND payment_status IN (:statuses) "
+			+ "AND created_at < :cutoff";
+	private static final String DELETE = "DELETE FROM payments "
+			+ "WHERE payment_id IN (:paymentIds) AND payment_status IN (:statuses) AND created_at < :cutoff";
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+
+	/**
+	 * The oldest payments in a final status created before {@code cutoff}
+	 */
+	public List<Integer> findArchivable(final Instant cutoff, final int limit) {
+		return this.jdbcTemplate.queryForList(SELECT_ARCHIVABLE, new MapSqlParameterSource()
+				.addValue("statuses", FINAL_STATUSES)
+				.addValue("cutoff", Timestamp.from(cutoff))
+				.addValue("limit", limit), Integer.class);
+	}
+
+	/**
+	 * @return the number of payments copied
+	 */
+	public int copyToArchive(final Collection<Integer> paymentIds, final Instant cutoff, final Instant archivedAt) {
+		return this.jdbcTemplate.update(COPY, new MapSqlParameterSource()
+				.addValue("paymentIds", paymentIds)
+				.addValue("statuses", FINAL_STATUSES)
+				.addValue("cutoff", Timestamp.from(cutoff))
+				.addValue("archivedAt", Timestamp.from(archivedAt)));
+	}
+
+	/**
+	 * @return the number of payments removed from the hot table
+	 */
+	public int deleteFromPayments(final Collection<Integer> paymentIds, final Instant cutoff) {
+		return this.jdbcTemplate.update(DELETE, new MapSqlParameterSource()
+				.addValue("paymentIds", paymentIds)
+				.addValue("statuses", FINAL_STATUSES)
+				.addValue("cutoff", Timestamp.from(cutoff)));
+	}
+
+}
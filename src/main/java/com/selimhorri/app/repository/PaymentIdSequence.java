@@ -0,0 +1,47 @@
+package com.selimhorri.app.repository;
+
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.selimhorri.app.domain.Payment;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reserves payment ids for writes that bypass Hibernate, from the same payment_id_sequence
+ * row the entity's pooled-lo generator draws its blocks from.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentIdSequence {
+
+	// The row lock taken here is what serialises allocations; a plain read would keep returning
+	// its first snapshot under MySQL's REPEATABLE READ and never win the update
+	private static final String SELECT_NEXT = "SELECT next_val FROM " + Payment.ID_SEQUENCE_TABLE + " FOR UPDATE";
+	private static final String ADVANCE = "UPDATE " + Payment.ID_SEQUENCE_TABLE + " SET next_val = ? WHERE next_val = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * Reserves {@code count} consecutive ids by locking next_val and advancing it once, as
+	 * Hibernate's table generator does, in a transaction of its own so the row is not held
+	 * for the caller's
+	 * 
+	 * @return the first reserved id
+	 */
+	@Transactional(TxType.REQUIRES_NEW)
+	public int allocate(final int count) {
+		Long next = this.jdbcTemplate.queryForObject(SELECT_NEXT, Long.class);
+		if (next == null) {
+			throw new IllegalStateException(Payment.ID_SEQUENCE_TABLE + " holds no value");
+		}
+		if (this.jdbcTemplate.update(ADVANCE, next + count, next) != 1) {
+			throw new IllegalStateException(Payment.ID_SEQUENCE_TABLE + " changed while locked");
+		}
+		return Math.toIntExact(next);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.selimhorri.app.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Plain JDBC access to {@code payments} for reads and writes too large to go through the
+ * persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentJdbcRepository {
+
+	private static final String SELECT_ALL = "SELECT payment_id, order_id, is_payed, payment_status, created_at, updated_at "
+			+ "FROM payments ORDER BY payment_id";
+	private static final String INSERT = "INSERT INTO payments "
+			+ "(payment_id, order_id, is_payed, payment_status, version, created_at, updated_at) VALUES (?, ?, ?, ?, 0, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final PaymentIdSequence paymentIdSequence;
+
+	/**
+	 * Hands every payment to {@code consumer} while reading a forward-only, read-only
+	 * cursor {@code fetchSize} rows at a time; no more than one fetch is held in memory.
+	 */
+	public void forEachPayment(final int fetchSize, final Consumer<Payment> consumer) {
+		this.jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(
+					SELECT_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			statement.setFetchSize(fetchSize);
+			return statement;
+		}, (ResultSet rs) -> consumer.accept(mapRow(rs)));
+	}
+
+	/**
+	 * Inserts the payments in JDBC batches of {@code batchSize} rows, with ids reserved
+	 * from payment_id_sequence in one step, and sets those ids and the timestamps on them
+	 */
+	public void insertAll(final List<Payment> payments, final int batchSize) {
+		if (payments.isEmpty()) {
+			return;
+		}
+		int firstId = this.paymentIdSequence.allocate(payments.size());
+		Instant now = Instant.now();
+		for (int i = 0; i < payments.size(); i++) {
+			Payment payment = payments.get(i);
+			payment.setPaymentId(firstId + i);
+			payment.setVersion(0L);
+			payment.setCreatedAt(now);
+			payment.setUpdatedAt(now);
+		}
+
+		Timestamp timestamp = Timestamp.from(now);
+		this.jdbcTemplate.batchUpdate(INSERT, payments, Math.max(1, batchSize), (statement, payment) -> {
+			statement.setInt(1, payment.getPaymentId());
+			statement.setObject(2, payment.getOrderId(), Types.INTEGER);
+			statement.setObject(3, payment.getIsPayed(), Types.BOOLEAN);
+			statement.setString(4, payment.getPaymentStatus() == null ? null : payment.getPaymentStatus().name());
+			statement.setTimestamp(5, timestamp);
+			statement.setTimestamp(6, timestamp);
+		});
+	}
+
+	private static Payment mapRow(ResultSet rs) throws SQLException {
+		int orderId = rs.getInt("order_id");
+		boolean orderIdNull = rs.wasNull();
+		boolean isPayed = rs.getBoolean("is_payed");
+		boolean isPayedNull = rs.wasNull();
+		String paymentStatus = rs.getString("payment_status");
+		Timestamp createdAt = rs.getTimestamp("created_at");
+		Timestamp updatedAt = rs.getTimestamp("updated_at");
+
+		Payment payment = Payment.builder()
+				.paymentId(rs.getInt("payment_id"))
+				.orderId(orderIdNull ? null : orderId)
+				.isPayed(isPayedNull ? null : isPayed)
+				.paymentStatus(paymentStatus == null ? null : PaymentStatus.valueOf(paymentStatus))
+				.build();
+		payment.setCreatedAt(createdAt == null ? null : createdAt.toInstant());
+		payment.setUpdatedAt(updatedAt == null ? null : updatedAt.toInstant());
+		return payment;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.selimhorri.app.repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.helper.PaymentPartition;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Partition DDL on the MySQL {@code payments} table (see V12). Every statement here is a
+ * metadata change on whole partitions, except the reads that size up a partition before it
+ * is retired and the first split of the catch-all, which moves the existing rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentPartitionJdbcRepository {
+
+	private static final String SELECT_PARTITIONS = "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+			+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'payments' AND PARTITION_NAME IS NOT NULL "
+			+ "ORDER BY PARTITION_ORDINAL_POSITION";
+	private static final String FINAL_STATUSES = List.of(PaymentStatus.COMPLETED, PaymentStatus.CANCELED).stream()
+			.map(status -> "'" + status.name() + "'")
+			.collect(Collectors.joining(", "));
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * @return partition names in range order, {@value PaymentPartition#CATCH_ALL} last;
+	 * empty on H2 and wherever payments is not partitioned
+	 */
+	public List<String> findPartitionNames() {
+		String product = this.jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+				connection.getMetaData().getDatabaseProductName());
+		if (product == null || !product.toLowerCase(Locale.ROOT).contains("mysql")) {
+			return List.of();
+		}
+		return this.jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class);
+	}
+
+	/**
+	 * created_at of the oldest payment, where the first monthly partition starts
+	 */
+	public Optional<Instant> findOldestCreatedAt() {
+		Long epochSecond = this.jdbcTemplate.queryForObject(
+				"SELECT UNIX_TIMESTAMP(MIN(created_at)) FROM payments", Long.class);
+		return Optional.ofNullable(epochSecond).map(Instant::ofEpochSecond);
+	}
+
+	/**
+	 * Splits the new months off the catch-all partition, which is instant while it is empty;
+	 * the first split after V12 moves every payment into its month
+	 */
+	public void addPartitions(final List<PaymentPartition> partitions) {
+		String definitions = partitions.stream()
+				.map(PaymentPartition::definition)
+				.collect(Collectors.joining(", "));
+		this.jdbcTemplate.execute("ALTER TABLE payments REORGANIZE PARTITION " + PaymentPartition.CATCH_ALL
+				+ " INTO (" + definitions + ", " + PaymentPartition.catchAllDefinition() + ")");
+	}
+
+	public long countPayments(final PaymentPartition partition) {
+		return count("SELECT COUNT(*) FROM payments PARTITION (" + partition.getName() + ")");
+	}
+
+	/**
+	 * Payments the archiver is still due to move out of the partition
+	 */
+	public long countFinalPayments(final PaymentPartition partition) {
+		return count("SELECT COUNT(*) FROM payments PARTITION (" + partition.getName() + ") "
+				+ "WHERE payment_status IN (" + FINAL_STATUSES + ")");
+	}
+
+	public void dropPartition(final PaymentPartition partition) {
+		this.jdbcTemplate.execute("ALTER TABLE payments DROP PARTITION " + partition.getName());
+	}
+
+	private long count(String sql) {
+		Long count = this.jdbcTemplate.queryForObject(sql, Long.class);
+		return count == null ? 0 : count;
+	}
+
+}
@@ -1,11 +1,86 @@
 package com.selimhorri.app.repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
 
-public interface PaymentRepository extends JpaRepository<Payment, Integer> {
+public interface PaymentRepository extends JpaRepository<Payment, Integer>, PaymentRepositoryCustom {
+	
+	List<Payment> findAllByOrderByCreatedAtAscPaymentIdAsc(final Pageable pageable);
+	
+	List<Payment> findAllByOrderIdIn(final Collection<Integer> orderIds);
+	
+	/**
+	 * Answered from uk_payments_order_id alone, without reading the row
+	 */
+	boolean existsByOrderId(final Integer orderId);
+	
+	/**
+	 * Those of the given orders that already have a payment, read from uk_payments_order_id alone
+	 */
+	@Query("SELECT p.orderId FROM Payment p WHERE p.orderId IN :orderIds")
+	List<Integer> findPaidOrderIds(@Param("orderIds") final Collection<Integer> orderIds);
+	
+	/**
+	 * Compare-and-set status transition: applied only while the payment is still in
+	 * {@code expected} at {@code version}, so of two concurrent transitions one wins.
+	 * Bumps the version like a versioned entity update would.
+	 * 
+	 * @return 1 when applied, 0 when the payment has changed since it was read
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Payment p SET p.paymentStatus = :next, p.updatedAt = :now, p.version = p.version + 1 "
+			+ "WHERE p.paymentId = :paymentId AND p.paymentStatus = :expected AND p.version = :version")
+	int transitionStatus(@Param("paymentId") final Integer paymentId,
+			@Param("expected") final PaymentStatus expected,
+			@Param("version") final Long version,
+			@Param("next") final PaymentStatus next,
+			@Param("now") final Instant now);
+	
+	/**
+	 * Reads and row-locks the given payments until the transaction ends, so bulk
+	 * transitions decided on these rows cannot be overtaken by other requests
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT p FROM Payment p WHERE p.paymentId IN :paymentIds")
+	List<Payment> findAllByIdForUpdate(@Param("paymentIds") final Collection<Integer> paymentIds);
 	
+	/**
+	 * Set-wise {@link #transitionStatus}: moves those of the given payments still in
+	 * {@code expected} to {@code next} in one statement
+	 * 
+	 * @return the number of payments moved
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query("UPDATE Payment p SET p.paymentStatus = :next, p.updatedAt = :now, p.version = p.version + 1 "
+			+ "WHERE p.paymentId IN :paymentIds AND p.paymentStatus = :expected")
+	int transitionStatusAll(@Param("paymentIds") final Collection<Integer> paymentIds,
+			@Param("expected") final PaymentStatus expected,
+			@Param("next") final PaymentStatus next,
+			@Param("now") final Instant now);
 	
+	/**
+	 * Keyset page strictly after the given position, served by idx_payments_created_at_id
+	 * so its cost does not grow with the depth of the cursor. The leading range on created_at
+	 * also lets MySQL prune the monthly partitions before the cursor.
+	 */
+	@Query("SELECT p FROM Payment p "
+			+ "WHERE p.createdAt >= :createdAt AND (p.createdAt > :createdAt OR p.paymentId > :paymentId) "
+			+ "ORDER BY p.createdAt ASC, p.paymentId ASC")
+	List<Payment> findPageAfter(@Param("createdAt") final Instant createdAt,
+			@Param("paymentId") final Integer paymentId,
+			final Pageable pageable);
 	
 }
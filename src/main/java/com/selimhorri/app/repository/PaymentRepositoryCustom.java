@@ -0,0 +1,17 @@
+package com.selimhorri.app.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.selimhorri.app.domain.Payment;
+
+public interface PaymentRepositoryCustom {
+	
+	/**
+	 * At most {@code limit} payments matching {@code specification}, in (created_at, payment_id)
+	 * order, without the count query a {@code Page} would add
+	 */
+	List<Payment> search(final Specification<Payment> specification, final int limit);
+	
+}
@@ -0,0 +1,38 @@
+package com.selimhorri.app.repository;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.selimhorri.app.domain.Payment;
+
+public class PaymentRepositoryImpl implements PaymentRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<Payment> search(final Specification<Payment> specification, final int limit) {
+		CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+		CriteriaQuery<Payment> query = cb.createQuery(Payment.class);
+		Root<Payment> root = query.from(Payment.class);
+
+		Predicate predicate = specification == null ? null : specification.toPredicate(root, query, cb);
+		if (predicate != null) {
+			query.where(predicate);
+		}
+		query.orderBy(cb.asc(root.get("createdAt")), cb.asc(root.get("paymentId")));
+
+		return this.entityManager.createQuery(query)
+				.setMaxResults(limit)
+				.getResultList();
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.selimhorri.app.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.dto.PaymentSearchCriteria;
+import com.selimhorri.app.helper.PaymentCursor;
+
+public interface PaymentSpecifications {
+
+	/**
+	 * Combines the criteria that are set; equality on status or order id plus a creation
+	 * range lines up with idx_payments_status_created_at and idx_payments_order_id, and the
+	 * creation range confines MySQL to the monthly partitions it covers
+	 */
+	public static Specification<Payment> matching(final PaymentSearchCriteria criteria) {
+		return Specification.where(hasStatus(criteria.getPaymentStatus()))
+				.and(hasOrderId(criteria.getOrderId()))
+				.and(isPayed(criteria.getIsPayed()))
+				.and(createdFrom(criteria.getCreatedFrom()))
+				.and(createdBefore(criteria.getCreatedTo()));
+	}
+
+	public static Specification<Payment> hasStatus(final PaymentStatus paymentStatus) {
+		return paymentStatus == null ? null
+				: (root, query, cb) -> cb.equal(root.get("paymentStatus"), paymentStatus);
+	}
+
+	public static Specification<Payment> hasOrderId(final Integer orderId) {
+		return orderId == null ? null
+				: (root, query, cb) -> cb.equal(root.get("orderId"), orderId);
+	}
+
+	public static Specification<Payment> isPayed(final Boolean isPayed) {
+		return isPayed == null ? null
+				: (root, query, cb) -> cb.equal(root.get("isPayed"), isPayed);
+	}
+
+	public static Specification<Payment> createdFrom(final Instant from) {
+		return from == null ? null
+				: (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+	}
+
+	public static Specification<Payment> createdBefore(final Instant to) {
+		return to == null ? null
+				: (root, query, cb) -> cb.lessThan(root.get("createdAt"), to);
+	}
+
+	/**
+	 * Rows strictly after the cursor in (created_at, payment_id) order, led by a plain range
+	 * on created_at that both the index and MySQL partition pruning can use
+	 */
+	public static Specification<Payment> after(final PaymentCursor cursor) {
+		return cursor == null ? null
+				: (root, query, cb) -> cb.and(
+						cb.greaterThanOrEqualTo(root.get("createdAt"), cursor.getCreatedAt()),
+						cb.or(
+								cb.greaterThan(root.get("createdAt"), cursor.getCreatedAt()),
+								cb.greaterThan(root.get("paymentId"), cursor.getPaymentId())));
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.selimhorri.app.repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.selimhorri.app.statemachine.PaymentTransition;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Plain JDBC appends to {@code payment_status_history}, so a bulk transition costs one
+ * batched statement however many payments it moves
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentStatusHistoryJdbcRepository {
+
+	private static final String INSERT = "INSERT INTO payment_status_history "
+			+ "(payment_id, from_status, to_status, event, changed_at) VALUES (?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	/**
+	 * One row per payment, in JDBC batches of {@code batchSize}
+	 */
+	public void insertAll(final PaymentTransition transition, final Collection<Integer> paymentIds,
+			final Instant changedAt, final int batchSize) {
+		Timestamp timestamp = Timestamp.from(changedAt);
+		this.jdbcTemplate.batchUpdate(INSERT, paymentIds, Math.max(1, batchSize), (statement, paymentId) -> {
+			statement.setInt(1, paymentId);
+			statement.setString(2, transition.getFrom().name());
+			statement.setString(3, transition.getTo().name());
+			statement.setString(4, transition.getEvent().name());
+			statement.setTimestamp(5, timestamp);
+		});
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.selimhorri.app.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.selimhorri.app.domain.PaymentStatusHistory;
+
+public interface PaymentStatusHistoryRepository extends JpaRepository<PaymentStatusHistory, Long> {
+	
+	/**
+	 * Served by idx_status_history_payment_changed; the id breaks ties within one timestamp
+	 */
+	List<PaymentStatusHistory> findAllByPaymentIdOrderByChangedAtAscHistoryIdAsc(final Integer paymentId);
+	
+}
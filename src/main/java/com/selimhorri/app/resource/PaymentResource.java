@@ -1,10 +1,17 @@
 package com.selimhorri.app.resource;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,12 +20,26 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.selimhorri.app.domain.PaymentStatus;
 import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.dto.PaymentSearchCriteria;
+import com.selimhorri.app.dto.PaymentStatusHistoryDto;
+import com.selimhorri.app.dto.response.BulkOperationResponse;
+import com.selimhorri.app.dto.response.IdempotentResponse;
 import com.selimhorri.app.dto.response.collection.DtoCollectionResponse;
+import com.selimhorri.app.dto.response.collection.DtoCursorPageResponse;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.InvalidInputException;
+import com.selimhorri.app.service.IdempotencyService;
+import com.selimhorri.app.service.PaymentExportService;
 import com.selimhorri.app.service.PaymentService;
+import com.selimhorri.app.service.PaymentStatusHistoryService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,28 +50,138 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class PaymentResource {
 
+    private static final String EXPAND_ORDER = "order";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final PaymentService paymentService;
+    private final PaymentExportService paymentExportService;
+    private final IdempotencyService idempotencyService;
+    private final PaymentStatusHistoryService paymentStatusHistoryService;
 
+    /**
+     * Orders are only resolved from ORDER-SERVICE with {@code ?expand=order};
+     * otherwise each payment carries just the {@code orderId} reference.
+     */
     @GetMapping
-    public ResponseEntity<DtoCollectionResponse<PaymentDto>> findAll() {
+    public ResponseEntity<DtoCollectionResponse<PaymentDto>> findAll(
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
         log.info("Fetching all payments");
         return ResponseEntity.ok(
-                new DtoCollectionResponse<>(this.paymentService.findAll()));
+                new DtoCollectionResponse<>(this.paymentService.findAll(expandsOrder(expand))));
+    }
+
+    /**
+     * Multi-get by payment id, e.g. {@code ?ids=1,2,3}; resolved with one database query
+     */
+    @GetMapping(params = { "ids", "!orderIds" })
+    public ResponseEntity<DtoCollectionResponse<PaymentDto>> findAllByIds(
+            @RequestParam("ids") final List<Integer> ids,
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
+        log.info("Fetching {} payments by id", ids.size());
+        return ResponseEntity.ok(
+                new DtoCollectionResponse<>(this.paymentService.findAllByIds(ids, expandsOrder(expand))));
+    }
+
+    /**
+     * Payments of several orders, e.g. {@code ?orderIds=10,20}; resolved with one database query
+     */
+    @GetMapping(params = "orderIds")
+    public ResponseEntity<DtoCollectionResponse<PaymentDto>> findAllByOrderIds(
+            @RequestParam("orderIds") final List<Integer> orderIds,
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
+        log.info("Fetching payments of {} orders", orderIds.size());
+        return ResponseEntity.ok(
+                new DtoCollectionResponse<>(this.paymentService.findAllByOrderIds(orderIds, expandsOrder(expand))));
+    }
+
+    /**
+     * Keyset-paginated listing; follow {@code nextCursor} until {@code hasMore} is false
+     */
+    @GetMapping("/page")
+    public ResponseEntity<DtoCursorPageResponse<PaymentDto>> findPage(
+            @RequestParam(name = "cursor", required = false) final String cursor,
+            @RequestParam(name = "size", required = false) final Integer size,
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
+        log.info("Fetching payment page");
+        return ResponseEntity.ok(
+                this.paymentService.findPage(cursor, size, expandsOrder(expand)));
+    }
+
+    /**
+     * Filtered, keyset-paginated listing; {@code createdFrom} is inclusive and
+     * {@code createdTo} exclusive, both ISO-8601 instants
+     */
+    @GetMapping("/search")
+    public ResponseEntity<DtoCursorPageResponse<PaymentDto>> search(
+            @RequestParam(name = "status", required = false) final PaymentStatus status,
+            @RequestParam(name = "orderId", required = false) final Integer orderId,
+            @RequestParam(name = "isPayed", required = false) final Boolean isPayed,
+            @RequestParam(name = "createdFrom", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final Instant createdFrom,
+            @RequestParam(name = "createdTo", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) final Instant createdTo,
+            @RequestParam(name = "cursor", required = false) final String cursor,
+            @RequestParam(name = "size", required = false) final Integer size,
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
+        log.info("Searching payments");
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .paymentStatus(status)
+                .orderId(orderId)
+                .isPayed(isPayed)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+        return ResponseEntity.ok(
+                this.paymentService.search(criteria, cursor, size, expandsOrder(expand)));
+    }
+
+    /**
+     * Every payment as newline-delimited JSON, streamed from a database cursor
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
+        log.info("Exporting all payments");
+        boolean expandOrder = expandsOrder(expand);
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(outputStream -> this.paymentExportService.exportNdjson(outputStream, expandOrder));
     }
 
     @GetMapping("/{paymentId}")
     public ResponseEntity<PaymentDto> findById(
             @PathVariable("paymentId") 
             @NotBlank(message = "Payment ID must not be blank") 
-            @Valid final String paymentId) {
+            @Valid final String paymentId,
+            @RequestParam(name = "expand", required = false) final Set<String> expand) {
         
         log.info("Fetching payment with id: {}", paymentId);
         return ResponseEntity.ok(
-                this.paymentService.findById(parsePaymentId(paymentId)));
+                this.paymentService.findById(parsePaymentId(paymentId), expandsOrder(expand)));
     }
 
+    /**
+     * Every status transition of the payment, oldest first, with the time spent in the
+     * status it left
+     */
+    @GetMapping("/{paymentId}/history")
+    public ResponseEntity<DtoCollectionResponse<PaymentStatusHistoryDto>> findHistory(
+            @PathVariable("paymentId") 
+            @NotBlank(message = "Payment ID must not be blank") 
+            @Valid final String paymentId) {
+        
+        log.info("Fetching status history of payment with id: {}", paymentId);
+        return ResponseEntity.ok(new DtoCollectionResponse<>(
+                this.paymentStatusHistoryService.findByPaymentId(parsePaymentId(paymentId))));
+    }
+
+    /**
+     * With an {@code Idempotency-Key}, retries of the same request get the stored
+     * response back (marked {@code Idempotent-Replayed: true}) instead of a second payment
+     */
     @PostMapping
     public ResponseEntity<PaymentDto> save(
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) final String idempotencyKey,
             @RequestBody 
             @NotNull(message = "Payment data must not be null") 
             @Valid final PaymentDto paymentDto) {
@@ -58,8 +189,31 @@ public class PaymentResource {
         log.info("Creating new payment for order: {}", 
                 paymentDto.getOrderDto() != null ? paymentDto.getOrderDto().getOrderId() : "null");
         
-        PaymentDto savedPayment = this.paymentService.save(paymentDto);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedPayment);
+        if (idempotencyKey == null) {
+            PaymentDto savedPayment = this.paymentService.save(paymentDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedPayment);
+        }
+        
+        IdempotentResponse<PaymentDto> response = this.idempotencyService.execute(idempotencyKey, paymentDto,
+                PaymentDto.class, HttpStatus.CREATED.value(), () -> this.paymentService.save(paymentDto));
+        return ResponseEntity.status(response.getStatus())
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(response.isReplayed()))
+                .body(response.getBody());
+    }
+
+    /**
+     * Creates payments for many orders in one request. Every item gets its own result;
+     * the response is 201 when all were created and 207 when some were not.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BulkOperationResponse<PaymentDto>> saveAll(
+            @RequestBody 
+            @NotNull(message = "Payments must not be null") final List<PaymentDto> paymentDtos) {
+        
+        log.info("Creating {} payments in bulk", paymentDtos.size());
+        BulkOperationResponse<PaymentDto> response = this.paymentService.saveAll(paymentDtos);
+        return ResponseEntity.status(response.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                .body(response);
     }
 
     @PatchMapping("/{paymentId}")
@@ -73,6 +227,19 @@ public class PaymentResource {
                 this.paymentService.updateStatus(parsePaymentId(paymentId)));
     }
 
+    /**
+     * Advances many payments one step each; the body is the list of payment ids. The
+     * response is 200 when every payment moved and 207 when some did not.
+     */
+    @PatchMapping("/batch")
+    public ResponseEntity<BulkOperationResponse<PaymentDto>> updateStatusAll(
+            @RequestBody 
+            @NotNull(message = "Payment IDs must not be null") final List<Integer> paymentIds) {
+        
+        log.info("Updating status of {} payments in bulk", paymentIds.size());
+        return bulkResponse(this.paymentService.updateStatusAll(paymentIds));
+    }
+
     @PutMapping("/{paymentId}")
     public ResponseEntity<PaymentDto> updateStatusPut(
             @PathVariable("paymentId") 
@@ -95,6 +262,38 @@ public class PaymentResource {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Cancels many payments; the body is the list of payment ids. The response is 200
+     * when every payment was canceled and 207 when some were not.
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<BulkOperationResponse<PaymentDto>> deleteAllByIds(
+            @RequestBody 
+            @NotNull(message = "Payment IDs must not be null") final List<Integer> paymentIds) {
+        
+        log.info("Canceling {} payments in bulk", paymentIds.size());
+        return bulkResponse(this.paymentService.deleteAllByIds(paymentIds));
+    }
+
+    private static ResponseEntity<BulkOperationResponse<PaymentDto>> bulkResponse(
+            BulkOperationResponse<PaymentDto> response) {
+        return ResponseEntity.status(response.getFailed() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS)
+                .body(response);
+    }
+
+    private boolean expandsOrder(Set<String> expand) {
+        if (expand == null || expand.isEmpty()) {
+            return false;
+        }
+        for (String field : expand) {
+            if (!EXPAND_ORDER.equalsIgnoreCase(field.trim())) {
+                throw new InvalidInputException(ErrorCode.INVALID_INPUT,
+                        "Unsupported expand value: " + field + " (supported: " + EXPAND_ORDER + ")");
+            }
+        }
+        return true;
+    }
+
     private Integer parsePaymentId(String paymentId) {
         try {
             return Integer.parseInt(paymentId);
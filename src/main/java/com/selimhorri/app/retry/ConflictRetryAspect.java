@@ -0,0 +1,113 @@
+package com.selimhorri.app.retry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.OptimisticLockException;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.exception.custom.PaymentConflictException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retries {@link RetryOnConflict} methods that lost an optimistic-lock race, with
+ * exponential backoff and full jitter. Ordered ahead of the transaction advice, so every
+ * attempt runs in a new transaction and re-reads the payment; a conflict raised inside a
+ * caller's transaction is passed up untouched, as only that caller can re-read.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class ConflictRetryAspect {
+
+    private final PaymentProperties.Retry config;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> retries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> exhausted = new ConcurrentHashMap<>();
+
+    public ConflictRetryAspect(final PaymentProperties paymentProperties, final MeterRegistry meterRegistry) {
+        this.config = paymentProperties.getRetry();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(final ProceedingJoinPoint joinPoint, final RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        String operation = retryOnConflict.operation().isEmpty()
+                ? joinPoint.getSignature().getName()
+                : retryOnConflict.operation();
+        int maxAttempts = Math.max(1, this.config.getMaxAttempts());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    counter(this.exhausted, "ecommerce.payments.conflict.exhausted.total",
+                            "Updates that still conflicted after the last retry", operation).increment();
+                    log.warn("{} still conflicting after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e;
+                }
+                counter(this.retries, "ecommerce.payments.conflict.retries.total",
+                        "Updates retried after losing an optimistic-lock race", operation).increment();
+                log.debug("{} conflicted on attempt {}, retrying: {}", operation, attempt, e.getMessage());
+                pause(attempt, e);
+            }
+        }
+    }
+
+    private static boolean isConflict(RuntimeException e) {
+        return e instanceof PaymentConflictException
+                || e instanceof OptimisticLockingFailureException
+                || e instanceof OptimisticLockException;
+    }
+
+    /**
+     * Sleeps a random time below the backoff of this attempt, so requests that collided
+     * do not collide again on the retry
+     */
+    private void pause(int attempt, RuntimeException conflict) {
+        long initial = this.config.getInitialBackoff().toMillis();
+        long max = this.config.getMaxBackoff().toMillis();
+        long backoff = Math.min(max, initial << Math.min(attempt - 1, 20));
+        if (backoff <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private Counter counter(Map<String, Counter> counters, String name, String description, String operation) {
+        return counters.computeIfAbsent(operation, key -> Counter.builder(name)
+                .description(description)
+                .tag("service", "payment-service")
+                .tag("operation", key)
+                .register(this.meterRegistry));
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.selimhorri.app.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Re-runs the annotated method when it loses an optimistic-lock race on a payment. The
+ * method must read what it updates itself, and must open its own transaction: each retry
+ * starts from a fresh read of the current row.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+	/**
+	 * Tag for the retry metrics; the method name when empty
+	 */
+	String operation() default "";
+
+}
@@ -0,0 +1,13 @@
+package com.selimhorri.app.service;
+
+import java.util.function.Supplier;
+
+import com.selimhorri.app.dto.response.IdempotentResponse;
+
+public interface IdempotencyService {
+	
+	<T> IdempotentResponse<T> execute(final String key, final Object request, final Class<T> responseType,
+			final int successStatus, final Supplier<T> action);
+	int purgeExpired();
+	
+}
@@ -0,0 +1,11 @@
+package com.selimhorri.app.service;
+
+import java.util.Collection;
+
+public interface OrderStatusOutboxService {
+	
+	void enqueue(final Integer orderId);
+	void enqueueAll(final Collection<Integer> orderIds);
+	int relayPending();
+	
+}
@@ -0,0 +1,10 @@
+package com.selimhorri.app.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface PaymentExportService {
+	
+	void exportNdjson(final OutputStream outputStream, final boolean expandOrder) throws IOException;
+	
+}
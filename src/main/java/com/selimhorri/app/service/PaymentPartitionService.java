@@ -0,0 +1,7 @@
+package com.selimhorri.app.service;
+
+public interface PaymentPartitionService {
+	
+	int maintainPartitions();
+	
+}
@@ -1,15 +1,29 @@
 package com.selimhorri.app.service;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.dto.PaymentSearchCriteria;
+import com.selimhorri.app.dto.response.BulkOperationResponse;
+import com.selimhorri.app.dto.response.collection.DtoCursorPageResponse;
 
 public interface PaymentService {
 	
 	List<PaymentDto> findAll();
+	List<PaymentDto> findAll(final boolean expandOrder);
+	DtoCursorPageResponse<PaymentDto> findPage(final String cursor, final Integer size, final boolean expandOrder);
+	DtoCursorPageResponse<PaymentDto> search(final PaymentSearchCriteria criteria, final String cursor,
+			final Integer size, final boolean expandOrder);
+	List<PaymentDto> findAllByIds(final Collection<Integer> paymentIds, final boolean expandOrder);
+	List<PaymentDto> findAllByOrderIds(final Collection<Integer> orderIds, final boolean expandOrder);
 	PaymentDto findById(final Integer paymentId);
+	PaymentDto findById(final Integer paymentId, final boolean expandOrder);
 	PaymentDto save(final PaymentDto paymentDto);
+	BulkOperationResponse<PaymentDto> saveAll(final List<PaymentDto> paymentDtos);
 	PaymentDto updateStatus(int paymentId);
+	BulkOperationResponse<PaymentDto> updateStatusAll(final List<Integer> paymentIds);
 	void deleteById(final Integer paymentId);
+	BulkOperationResponse<PaymentDto> deleteAllByIds(final List<Integer> paymentIds);
 	
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.selimhorri.app.service;
+
+import java.util.List;
+
+import com.selimhorri.app.dto.PaymentStatusHistoryDto;
+
+public interface PaymentStatusHistoryService {
+	
+	List<PaymentStatusHistoryDto> findByPaymentId(final Integer paymentId);
+	
+}
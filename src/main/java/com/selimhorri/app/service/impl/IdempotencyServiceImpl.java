@@ -0,0 +1,268 @@
+package com.selimhorri.app.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.domain.IdempotencyRecord;
+import com.selimhorri.app.domain.enums.IdempotencyStatus;
+import com.selimhorri.app.dto.response.IdempotentResponse;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.DuplicateResourceException;
+import com.selimhorri.app.exception.custom.InvalidInputException;
+import com.selimhorri.app.repository.IdempotencyRecordRepository;
+import com.selimhorri.app.service.IdempotencyService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. The key is reserved in its own
+ * committed transaction, so concurrent retries see it; the action and the stored response
+ * then commit together, and retries within {@code ttl} get that response back untouched.
+ * Failed actions release the key instead of storing the error.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final PaymentProperties.Idempotency config;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter compactWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+    private final Cache<String, IdempotencyRecord> completed;
+
+    private final Counter replayed;
+    private final Counter purged;
+
+    public IdempotencyServiceImpl(final IdempotencyRecordRepository idempotencyRecordRepository,
+            final PaymentProperties paymentProperties,
+            final ObjectMapper objectMapper,
+            final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.config = paymentProperties.getIdempotency();
+        this.objectMapper = objectMapper;
+        this.compactWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(this.config.getFrontMaximumSize())
+                .expireAfterWrite(this.config.getFrontTtl())
+                .build();
+
+        this.replayed = Counter.builder("ecommerce.payments.idempotency.replayed.total")
+                .description("Requests answered with the stored response of an earlier request with the same key")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.purged = Counter.builder("ecommerce.payments.idempotency.purged.total")
+                .description("Expired idempotency keys removed")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <T> IdempotentResponse<T> execute(final String key, final Object request, final Class<T> responseType,
+            final int successStatus, final Supplier<T> action) {
+        validateKey(key);
+        String requestHash = hash(request);
+
+        IdempotencyRecord record = findCompleted(key);
+        if (record == null) {
+            record = reserve(key, requestHash);
+        }
+        if (record != null) {
+            return replay(record, requestHash, responseType);
+        }
+
+        T body;
+        try {
+            body = this.transactionTemplate.execute(status -> {
+                T result = action.get();
+                complete(key, successStatus, result);
+                return result;
+            });
+        } catch (RuntimeException e) {
+            release(key);
+            throw e;
+        }
+
+        log.debug("Stored response for idempotency key {}", key);
+        return new IdempotentResponse<>(successStatus, body, false);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.idempotency.purge-delay:PT10M}")
+    public void scheduledPurge() {
+        try {
+            purgeExpired();
+        } catch (RuntimeException e) {
+            log.error("Idempotency key purge failed", e);
+        }
+    }
+
+    @Override
+    public int purgeExpired() {
+        Integer deleted = this.transactionTemplate.execute(status ->
+                this.idempotencyRecordRepository.deleteExpired(Instant.now()));
+        int count = deleted == null ? 0 : deleted;
+        if (count > 0) {
+            this.purged.increment(count);
+            log.info("Purged {} expired idempotency keys", count);
+        }
+        return count;
+    }
+
+    private void validateKey(String key) {
+        if (key == null || key.isBlank() || key.length() > this.config.getMaxKeyLength()) {
+            throw new InvalidInputException(ErrorCode.INVALID_INPUT,
+                    "Idempotency-Key must be 1 to " + this.config.getMaxKeyLength() + " characters");
+        }
+    }
+
+    /**
+     * @return the unexpired, completed record for the key, from memory when it was seen recently
+     */
+    private IdempotencyRecord findCompleted(String key) {
+        Instant now = Instant.now();
+        IdempotencyRecord record = this.completed.getIfPresent(key);
+        if (record != null && record.getExpiresAt().isAfter(now)) {
+            return record;
+        }
+
+        record = this.newTransactionTemplate.execute(status ->
+                this.idempotencyRecordRepository.findById(key).orElse(null));
+        if (record == null || record.getStatus() != IdempotencyStatus.COMPLETED
+                || !record.getExpiresAt().isAfter(now)) {
+            return null;
+        }
+        this.completed.put(key, record);
+        return record;
+    }
+
+    /**
+     * Claims the key for this request. Takes over a reservation whose request died, and
+     * an expired record the purge has not reached yet.
+     *
+     * @return {@code null} once reserved, or the completed record of a request that won the race
+     */
+    private IdempotencyRecord reserve(String key, String requestHash) {
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Instant now = Instant.now();
+            try {
+                this.newTransactionTemplate.executeWithoutResult(status -> this.idempotencyRecordRepository
+                        .reserve(key, requestHash, now.plus(this.config.getTtl()), now));
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Idempotency key {} is already taken", key);
+            }
+
+            IdempotencyRecord existing = this.newTransactionTemplate.execute(status ->
+                    this.idempotencyRecordRepository.findById(key).orElse(null));
+            if (existing == null) {
+                continue;
+            }
+            if (!existing.getExpiresAt().isAfter(now)) {
+                this.newTransactionTemplate.executeWithoutResult(status ->
+                        this.idempotencyRecordRepository.deleteExpired(key, now));
+                continue;
+            }
+            if (existing.getStatus() == IdempotencyStatus.COMPLETED) {
+                this.completed.put(key, existing);
+                return existing;
+            }
+
+            Instant staleBefore = now.minus(this.config.getInProgressTimeout());
+            Integer takenOver = this.newTransactionTemplate.execute(status -> this.idempotencyRecordRepository
+                    .deleteStale(key, IdempotencyStatus.IN_PROGRESS, staleBefore));
+            if (takenOver == null || takenOver == 0) {
+                break;
+            }
+            log.warn("Taking over idempotency key {} left in progress since {}", key, existing.getUpdatedAt());
+        }
+        throw new DuplicateResourceException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS, key);
+    }
+
+    private <T> IdempotentResponse<T> replay(IdempotencyRecord record, String requestHash, Class<T> responseType) {
+        if (!record.getRequestHash().equals(requestHash)) {
+            throw new InvalidInputException(ErrorCode.IDEMPOTENCY_KEY_MISMATCH,
+                    ErrorCode.IDEMPOTENCY_KEY_MISMATCH.formatMessage(record.getIdempotencyKey()));
+        }
+        try {
+            T body = this.objectMapper.readValue(record.getResponseBody(), responseType);
+            this.replayed.increment();
+            log.info("Replaying stored response for idempotency key {}", record.getIdempotencyKey());
+            return new IdempotentResponse<>(record.getResponseStatus(), body, true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key "
+                    + record.getIdempotencyKey() + " is unreadable", e);
+        }
+    }
+
+    /**
+     * Runs inside the action's transaction, so the response is stored only if the action commits
+     */
+    private void complete(String key, int responseStatus, Object body) {
+        IdempotencyRecord record = this.idempotencyRecordRepository.findById(key)
+                .orElseThrow(() -> new IllegalStateException("Idempotency key " + key + " is no longer reserved"));
+        record.setStatus(IdempotencyStatus.COMPLETED);
+        record.setResponseStatus(responseStatus);
+        record.setResponseBody(toJson(body));
+        record.setExpiresAt(Instant.now().plus(this.config.getTtl()));
+        this.idempotencyRecordRepository.save(record);
+    }
+
+    private void release(String key) {
+        try {
+            this.completed.invalidate(key);
+            this.newTransactionTemplate.executeWithoutResult(status -> this.idempotencyRecordRepository
+                    .deleteByKeyAndStatus(key, IdempotencyStatus.IN_PROGRESS));
+        } catch (RuntimeException e) {
+            // Left in progress; a retry takes it over once in-progress-timeout has passed
+            log.warn("Could not release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(this.compactWriter.writeValueAsBytes(request));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (JsonProcessingException e) {
+            throw new InvalidInputException(ErrorCode.INVALID_FORMAT, "Request body cannot be serialised");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return new String(this.compactWriter.writeValueAsBytes(body), StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for replay", e);
+        }
+    }
+
+}
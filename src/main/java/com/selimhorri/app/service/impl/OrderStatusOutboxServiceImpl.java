@@ -0,0 +1,214 @@
+package com.selimhorri.app.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import com.selimhorri.app.client.OrderServiceClient;
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.domain.OrderStatusOutbox;
+import com.selimhorri.app.domain.enums.OutboxStatus;
+import com.selimhorri.app.repository.OrderStatusOutboxJdbcRepository;
+import com.selimhorri.app.repository.OrderStatusOutboxRepository;
+import com.selimhorri.app.service.OrderStatusOutboxService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records order status updates next to the payment that causes them and delivers them to
+ * ORDER-SERVICE afterwards. Each remote call happens outside any database transaction;
+ * failed deliveries are retried with exponential backoff until {@code max-attempts}.
+ */
+@Service
+@Slf4j
+public class OrderStatusOutboxServiceImpl implements OrderStatusOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 512;
+
+    private final OrderStatusOutboxRepository outboxRepository;
+    private final OrderStatusOutboxJdbcRepository outboxJdbcRepository;
+    private final OrderServiceClient orderServiceClient;
+    private final PaymentProperties.Outbox config;
+    private final int bulkInsertBatchSize;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter failed;
+
+    public OrderStatusOutboxServiceImpl(final OrderStatusOutboxRepository outboxRepository,
+            final OrderStatusOutboxJdbcRepository outboxJdbcRepository,
+            final OrderServiceClient orderServiceClient,
+            final PaymentProperties paymentProperties,
+            final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.outboxJdbcRepository = outboxJdbcRepository;
+        this.orderServiceClient = orderServiceClient;
+        this.config = paymentProperties.getOutbox();
+        this.bulkInsertBatchSize = paymentProperties.getBulk().getInsertBatchSize();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.delivered = Counter.builder("ecommerce.payments.outbox.delivered.total")
+                .description("Order status updates delivered to ORDER-SERVICE")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.retried = Counter.builder("ecommerce.payments.outbox.retried.total")
+                .description("Order status deliveries that failed and were rescheduled")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.failed = Counter.builder("ecommerce.payments.outbox.failed.total")
+                .description("Order status updates given up on")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Must run inside the caller's transaction so the entry commits, or rolls back, with it
+     */
+    @Override
+    @Transactional(TxType.MANDATORY)
+    public void enqueue(final Integer orderId) {
+        this.outboxRepository.save(OrderStatusOutbox.builder()
+                .orderId(orderId)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(Instant.now())
+                .build());
+        log.debug("Queued status update for order {}", orderId);
+    }
+
+    /**
+     * Batched form of {@link #enqueue(Integer)} for bulk payment creation
+     */
+    @Override
+    @Transactional(TxType.MANDATORY)
+    public void enqueueAll(final Collection<Integer> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        this.outboxJdbcRepository.insertPending(orderIds, this.bulkInsertBatchSize);
+        log.debug("Queued status updates for {} orders", orderIds.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.outbox.relay-delay:PT1S}")
+    public void scheduledRelay() {
+        try {
+            relayPending();
+        } catch (RuntimeException e) {
+            log.error("Order status outbox relay run failed", e);
+        }
+    }
+
+    /**
+     * Claims up to {@code batch-size} due entries and delivers them one by one
+     * 
+     * @return the number of entries delivered
+     */
+    @Override
+    public int relayPending() {
+        List<OrderStatusOutbox> claimed = this.transactionTemplate.execute(status -> claimDue());
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+
+        int deliveredCount = 0;
+        for (OrderStatusOutbox entry : claimed) {
+            if (deliver(entry)) {
+                deliveredCount++;
+            }
+        }
+        log.info("Delivered {} of {} queued order status updates", deliveredCount, claimed.size());
+        return deliveredCount;
+    }
+
+    private List<OrderStatusOutbox> claimDue() {
+        Instant now = Instant.now();
+        Instant leaseUntil = now.plus(this.config.getLease());
+        List<OrderStatusOutbox> claimed = new ArrayList<>();
+        for (OrderStatusOutbox entry : this.outboxRepository
+                .findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                        OutboxStatus.PENDING, now, PageRequest.of(0, Math.max(1, this.config.getBatchSize())))) {
+            if (this.outboxRepository.claim(entry.getOutboxId(), OutboxStatus.PENDING,
+                    entry.getNextAttemptAt(), leaseUntil) == 1) {
+                claimed.add(entry);
+            }
+        }
+        return claimed;
+    }
+
+    private boolean deliver(OrderStatusOutbox entry) {
+        try {
+            this.orderServiceClient.updateOrderStatus(entry.getOrderId());
+        } catch (HttpClientErrorException e) {
+            // ORDER-SERVICE rejected the update itself; apart from throttling, repeating it cannot help
+            boolean permanent = e.getRawStatusCode() != 408 && e.getRawStatusCode() != 429;
+            recordFailure(entry, e, permanent);
+            return false;
+        } catch (RestClientException e) {
+            recordFailure(entry, e, false);
+            return false;
+        }
+
+        this.transactionTemplate.executeWithoutResult(status -> this.outboxRepository.deleteById(entry.getOutboxId()));
+        this.delivered.increment();
+        return true;
+    }
+
+    private void recordFailure(OrderStatusOutbox claimed, RestClientException error, boolean permanent) {
+        this.transactionTemplate.executeWithoutResult(status -> this.outboxRepository.findById(claimed.getOutboxId())
+                .ifPresent(entry -> {
+                    int attempts = entry.getAttempts() + 1;
+                    entry.setAttempts(attempts);
+                    entry.setLastError(truncate(error.getMessage()));
+                    if (permanent || attempts >= this.config.getMaxAttempts()) {
+                        entry.setStatus(OutboxStatus.FAILED);
+                        this.failed.increment();
+                        log.error("Giving up on status update for order {} after {} attempt(s): {}",
+                                entry.getOrderId(), attempts, error.getMessage());
+                    } else {
+                        entry.setNextAttemptAt(Instant.now().plus(backoff(attempts)));
+                        this.retried.increment();
+                        log.warn("Status update for order {} failed (attempt {}), retrying at {}: {}",
+                                entry.getOrderId(), attempts, entry.getNextAttemptAt(), error.getMessage());
+                    }
+                    this.outboxRepository.save(entry);
+                }));
+    }
+
+    /**
+     * Exponential backoff capped at {@code max-backoff}, with half of it randomised so
+     * entries that failed together do not retry together
+     */
+    private Duration backoff(int attempts) {
+        long initialMillis = Math.max(1, this.config.getInitialBackoff().toMillis());
+        long maxMillis = Math.max(initialMillis, this.config.getMaxBackoff().toMillis());
+        long exponential = initialMillis << Math.min(attempts - 1, 30);
+        long capped = exponential <= 0 ? maxMillis : Math.min(exponential, maxMillis);
+        return Duration.ofMillis(capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1));
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+}
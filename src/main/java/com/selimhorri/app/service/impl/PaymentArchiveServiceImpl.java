@@ -0,0 +1,107 @@
+package com.selimhorri.app.service.impl;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.repository.PaymentArchiveJdbcRepository;
+import com.selimhorri.app.service.PaymentArchiveService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves COMPLETED and CANCELED payments older than {@code min-age} from {@code payments}
+ * to {@code payments_archive}, keeping the hot table and its indexes small. Each chunk is
+ * copied and deleted in one transaction, so an interrupted run loses nothing and the next
+ * run simply picks up the payments still left in the hot table.
+ */
+@Service
+@Slf4j
+public class PaymentArchiveServiceImpl implements PaymentArchiveService {
+
+    private final PaymentArchiveJdbcRepository archiveJdbcRepository;
+    private final PaymentProperties.Archive config;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter archived;
+
+    public PaymentArchiveServiceImpl(final PaymentArchiveJdbcRepository archiveJdbcRepository,
+            final PaymentProperties paymentProperties,
+            final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry) {
+        this.archiveJdbcRepository = archiveJdbcRepository;
+        this.config = paymentProperties.getArchive();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.archived = Counter.builder("ecommerce.payments.archived.total")
+                .description("Payments moved from the hot table to payments_archive")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.archive.run-delay:PT1H}")
+    public void scheduledArchive() {
+        try {
+            archiveFinalPayments();
+        } catch (RuntimeException e) {
+            log.error("Payment archiver run failed", e);
+        }
+    }
+
+    /**
+     * Archives chunk after chunk until no payment is due or {@code max-chunks-per-run} is reached
+     *
+     * @return the number of payments archived
+     */
+    @Override
+    public int archiveFinalPayments() {
+        Instant cutoff = Instant.now().minus(this.config.getMinAge());
+        int chunkSize = Math.max(1, this.config.getChunkSize());
+        int total = 0;
+
+        for (int chunk = 0; chunk < this.config.getMaxChunksPerRun(); chunk++) {
+            Integer moved;
+            try {
+                moved = this.transactionTemplate.execute(status -> archiveChunk(cutoff, chunkSize));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance archived the same payments first; its run carries on
+                log.warn("Payment archiver chunk collided with a concurrent run: {}", e.getMessage());
+                break;
+            }
+            int count = moved == null ? 0 : moved;
+            total += count;
+            if (count < chunkSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            this.archived.increment(total);
+            log.info("Archived {} payments created before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private int archiveChunk(Instant cutoff, int chunkSize) {
+        List<Integer> paymentIds = this.archiveJdbcRepository.findArchivable(cutoff, chunkSize);
+        if (paymentIds.isEmpty()) {
+            return 0;
+        }
+        int copied = this.archiveJdbcRepository.copyToArchive(paymentIds, cutoff, Instant.now());
+        int deleted = this.archiveJdbcRepository.deleteFromPayments(paymentIds, cutoff);
+        if (copied != deleted) {
+            throw new IllegalStateException("Archived " + copied + " payments but removed " + deleted
+                    + " from the hot table; chunk rolled back");
+        }
+        return deleted;
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.selimhorri.app.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.selimhorri.app.client.OrderServiceClient;
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.datasource.ReadOnlyTransactional;
+import com.selimhorri.app.dto.OrderDto;
+import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.helper.PaymentMappingHelper;
+import com.selimhorri.app.repository.PaymentJdbcRepository;
+import com.selimhorri.app.service.PaymentExportService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes payments as newline-delimited JSON while they are read from the database cursor.
+ * Only one record, or one order-lookup chunk when orders are expanded, is held at a time.
+ */
+@Service
+@Slf4j
+public class PaymentExportServiceImpl implements PaymentExportService {
+
+    private static final byte[] NEWLINE = { '\n' };
+
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final OrderServiceClient orderServiceClient;
+    private final PaymentProperties paymentProperties;
+    private final ObjectWriter recordWriter;
+
+    public PaymentExportServiceImpl(final PaymentJdbcRepository paymentJdbcRepository,
+            final OrderServiceClient orderServiceClient,
+            final PaymentProperties paymentProperties,
+            final ObjectMapper objectMapper) {
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.orderServiceClient = orderServiceClient;
+        this.paymentProperties = paymentProperties;
+        // One record per line, whatever the API-wide indentation setting is
+        this.recordWriter = objectMapper.writerFor(PaymentDto.class).without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    @Override
+    @ReadOnlyTransactional
+    public void exportNdjson(final OutputStream outputStream, final boolean expandOrder) throws IOException {
+        PaymentProperties.Export config = this.paymentProperties.getExport();
+        int chunkSize = Math.max(1, config.getOrderChunkSize());
+        List<PaymentDto> chunk = new ArrayList<>(expandOrder ? chunkSize : 1);
+        long[] exported = { 0 };
+
+        try {
+            this.paymentJdbcRepository.forEachPayment(config.getFetchSize(), payment -> {
+                chunk.add(PaymentMappingHelper.map(payment));
+                if (!expandOrder || chunk.size() >= chunkSize) {
+                    exported[0] += writeChunk(chunk, expandOrder, outputStream);
+                }
+            });
+            exported[0] += writeChunk(chunk, expandOrder, outputStream);
+        } catch (UncheckedIOException e) {
+            log.warn("Payment export aborted after {} records: {}", exported[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        outputStream.flush();
+        log.info("Exported {} payments (expand order: {})", exported[0], expandOrder);
+    }
+
+    private int writeChunk(List<PaymentDto> chunk, boolean expandOrder, OutputStream outputStream) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        if (expandOrder) {
+            enrichChunk(chunk);
+        } else {
+            chunk.forEach(PaymentMappingHelper::referenceOrder);
+        }
+        try {
+            for (PaymentDto paymentDto : chunk) {
+                outputStream.write(this.recordWriter.writeValueAsBytes(paymentDto));
+                outputStream.write(NEWLINE);
+            }
+        } catch (IOException e) {
+            // Usually the client went away; stop reading the cursor
+            throw new UncheckedIOException(e);
+        }
+        int written = chunk.size();
+        chunk.clear();
+        return written;
+    }
+
+    private void enrichChunk(List<PaymentDto> chunk) {
+        Set<Integer> orderIds = chunk.stream()
+                .map(paymentDto -> paymentDto.getOrderDto().getOrderId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Integer, OrderDto> orders;
+        try {
+            orders = this.orderServiceClient.fetchOrdersByIds(orderIds);
+        } catch (Exception e) {
+            log.warn("Could not fetch orders for {} exported payments: {}", chunk.size(), e.getMessage());
+            return;
+        }
+        chunk.forEach(paymentDto -> {
+            OrderDto orderDto = orders.get(paymentDto.getOrderDto().getOrderId());
+            if (orderDto != null) {
+                paymentDto.setOrderDto(orderDto);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.selimhorri.app.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.helper.PaymentPartition;
+import com.selimhorri.app.repository.PaymentPartitionJdbcRepository;
+import com.selimhorri.app.service.PaymentPartitionService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the monthly partitions of {@code payments} ahead of the clock and drops the ones past
+ * {@code retention}, each a metadata change instead of a long DELETE. A partition is dropped
+ * only once it is empty: the archiver has moved its final payments out and none of its payments
+ * is still unfinished. V12 leaves a lone catch-all partition, which the first run splits into
+ * months from the oldest payment on; that one run moves rows. Where payments is not partitioned
+ * (H2, or MySQL before V12) it does nothing.
+ */
+@Service
+@Slf4j
+public class PaymentPartitionServiceImpl implements PaymentPartitionService {
+
+    private final PaymentPartitionJdbcRepository partitionJdbcRepository;
+    private final PaymentProperties.Partitions config;
+
+    private final Counter created;
+    private final Counter dropped;
+
+    public PaymentPartitionServiceImpl(final PaymentPartitionJdbcRepository partitionJdbcRepository,
+            final PaymentProperties paymentProperties,
+            final MeterRegistry meterRegistry) {
+        this.partitionJdbcRepository = partitionJdbcRepository;
+        this.config = paymentProperties.getPartitions();
+
+        this.created = Counter.builder("ecommerce.payments.partitions.created.total")
+                .description("Monthly payments partitions created ahead of time")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("ecommerce.payments.partitions.retired.total")
+                .description("Expired monthly payments partitions dropped once empty")
+                .tag("service", "payment-service")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.payments.partitions.maintenance-delay:PT6H}")
+    public void scheduledMaintenance() {
+        if (!this.config.isEnabled()) {
+            return;
+        }
+        try {
+            maintainPartitions();
+        } catch (RuntimeException e) {
+            // Also how a run that raced another instance's DDL ends; the next run starts over
+            log.error("Payment partition maintenance failed", e);
+        }
+    }
+
+    /**
+     * @return the number of partitions created and retired
+     */
+    @Override
+    public int maintainPartitions() {
+        List<String> names = this.partitionJdbcRepository.findPartitionNames();
+        if (names.isEmpty()) {
+            log.debug("payments is not partitioned; no partition maintenance to do");
+            return 0;
+        }
+        List<PaymentPartition> partitions = names.stream()
+                .map(PaymentPartition::parse)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+
+        Instant now = Instant.now();
+        if (partitions.isEmpty()) {
+            Instant oldest = this.partitionJdbcRepository.findOldestCreatedAt().orElse(now);
+            return createAhead(PaymentPartition.of(oldest), now);
+        }
+        return createAhead(partitions.get(partitions.size() - 1).plusMonths(1), now)
+                + retireExpired(partitions, now);
+    }
+
+    private int createAhead(PaymentPartition first, Instant now) {
+        PaymentPartition target = PaymentPartition.of(now).plusMonths(this.config.getMonthsAhead());
+        List<PaymentPartition> missing = new ArrayList<>();
+        for (PaymentPartition partition = first; !partition.isAfter(target); partition = partition.plusMonths(1)) {
+            missing.add(partition);
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
+
+        this.partitionJdbcRepository.addPartitions(missing);
+        this.created.increment(missing.size());
+        log.info("Created payments partitions {} to {}",
+                missing.get(0).getName(), missing.get(missing.size() - 1).getName());
+        return missing.size();
+    }
+
+    private int retireExpired(List<PaymentPartition> partitions, Instant now) {
+        Duration retention = this.config.getRetention();
+        if (retention == null || retention.isZero() || retention.isNegative()) {
+            return 0;
+        }
+
+        Instant cutoff = now.minus(retention);
+        int retired = 0;
+        for (PaymentPartition partition : partitions) {
+            if (partition.getEnd().isAfter(cutoff)) {
+                break;
+            }
+            long remaining = this.partitionJdbcRepository.countPayments(partition);
+            if (remaining > 0) {
+                long unarchived = this.partitionJdbcRepository.countFinalPayments(partition);
+                if (unarchived > 0) {
+                    log.warn("Partition {} is past retention but still holds {} final payments for the archiver",
+                            partition.getName(), unarchived);
+                } else {
+                    // Still readable and updatable, and each keeps its order claimed in payment_order_keys
+                    log.warn("Partition {} is past retention but still holds {} unfinished payments; "
+                            + "it is dropped once they are completed or canceled and archived",
+                            partition.getName(), remaining);
+                }
+                break;
+            }
+            this.partitionJdbcRepository.dropPartition(partition);
+            this.dropped.increment();
+            log.info("Dropped expired payments partition {}", partition.getName());
+            retired++;
+        }
+        return retired;
+    }
+
+}
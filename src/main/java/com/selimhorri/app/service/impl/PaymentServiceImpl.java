@@ -1,30 +1,61 @@
 package com.selimhorri.app.service.impl;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.transaction.Transactional;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
-import com.selimhorri.app.constant.AppConstant;
+import com.selimhorri.app.client.OrderServiceClient;
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.datasource.ReadOnlyTransactional;
+import com.selimhorri.app.domain.ArchivedPayment;
 import com.selimhorri.app.domain.Payment;
 import com.selimhorri.app.domain.PaymentStatus;
 import com.selimhorri.app.domain.enums.OrderStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
 import com.selimhorri.app.dto.OrderDto;
 import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.dto.PaymentSearchCriteria;
+import com.selimhorri.app.dto.response.BulkItemResult;
+import com.selimhorri.app.dto.response.BulkOperationResponse;
+import com.selimhorri.app.dto.response.collection.DtoCursorPageResponse;
 import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.DuplicateResourceException;
 import com.selimhorri.app.exception.custom.ExternalServiceException;
 import com.selimhorri.app.exception.custom.InvalidInputException;
 import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
+import com.selimhorri.app.exception.custom.PaymentConflictException;
 import com.selimhorri.app.exception.custom.ResourceNotFoundException;
+import com.selimhorri.app.helper.PaymentCursor;
 import com.selimhorri.app.helper.PaymentMappingHelper;
 import com.selimhorri.app.metrics.PaymentBusinessMetrics;
+import com.selimhorri.app.repository.ArchivedPaymentRepository;
+import com.selimhorri.app.repository.PaymentJdbcRepository;
 import com.selimhorri.app.repository.PaymentRepository;
+import com.selimhorri.app.repository.PaymentSpecifications;
+import com.selimhorri.app.retry.RetryOnConflict;
+import com.selimhorri.app.service.OrderStatusOutboxService;
 import com.selimhorri.app.service.PaymentService;
+import com.selimhorri.app.statemachine.PaymentStateMachine;
+import com.selimhorri.app.statemachine.PaymentTransition;
 
 import io.micrometer.core.instrument.Timer;
 
@@ -38,31 +69,153 @@ import lombok.extern.slf4j.Slf4j;
 public class PaymentServiceImpl implements PaymentService {
 
     private final PaymentRepository paymentRepository;
-    private final RestTemplate restTemplate;
+    private final OrderServiceClient orderServiceClient;
     private final PaymentBusinessMetrics businessMetrics;
+    private final PaymentProperties paymentProperties;
+    private final OrderStatusOutboxService orderStatusOutboxService;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final PaymentStateMachine paymentStateMachine;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
 
     @Override
+    @ReadOnlyTransactional
     public List<PaymentDto> findAll() {
-        log.info("Fetching all payments");
+        return findAll(true);
+    }
+
+    /**
+     * @param expandOrder resolve each payment's order from ORDER-SERVICE; when false
+     *        the order is only referenced by its id and no remote call is made
+     */
+    @Override
+    @ReadOnlyTransactional
+    public List<PaymentDto> findAll(final boolean expandOrder) {
+        log.info("Fetching all payments (expand order: {})", expandOrder);
 
-        return this.paymentRepository.findAll()
+        List<PaymentDto> payments = this.paymentRepository.findAll()
                 .stream()
                 .map(PaymentMappingHelper::map)
-                .map(this::enrichWithOrderDataSafely)
+                .collect(Collectors.toList());
+
+        if (expandOrder) {
+            enrichWithOrderDataInBulk(payments);
+        } else {
+            payments.forEach(PaymentMappingHelper::referenceOrder);
+        }
+
+        return payments.stream()
                 .distinct()
                 .collect(Collectors.toUnmodifiableList());
     }
 
+    /**
+     * One page of payments in (created_at, payment_id) order, starting after {@code cursor}
+     * or from the beginning when it is absent. Requested sizes above
+     * {@code app.payments.page.max-size} are capped.
+     */
+    @Override
+    @ReadOnlyTransactional
+    public DtoCursorPageResponse<PaymentDto> findPage(final String cursor, final Integer size, final boolean expandOrder) {
+        int pageSize = resolvePageSize(size);
+        log.info("Fetching payment page of {} after cursor {}", pageSize, cursor);
+
+        // One extra row tells whether another page follows, without a count query
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Payment> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = this.paymentRepository.findAllByOrderByCreatedAtAscPaymentIdAsc(limit);
+        } else {
+            PaymentCursor position = PaymentCursor.decode(cursor);
+            rows = this.paymentRepository.findPageAfter(position.getCreatedAt(), position.getPaymentId(), limit);
+        }
+
+        return toCursorPage(rows, pageSize, expandOrder);
+    }
+
+    /**
+     * Payments matching every criterion that is set, paginated like {@link #findPage}.
+     * All predicates are evaluated by the database.
+     */
     @Override
+    @ReadOnlyTransactional
+    public DtoCursorPageResponse<PaymentDto> search(final PaymentSearchCriteria criteria, final String cursor,
+            final Integer size, final boolean expandOrder) {
+        if (criteria.getCreatedFrom() != null && criteria.getCreatedTo() != null
+                && !criteria.getCreatedFrom().isBefore(criteria.getCreatedTo())) {
+            throw new InvalidInputException(ErrorCode.INVALID_INPUT, "createdFrom must be before createdTo");
+        }
+        int pageSize = resolvePageSize(size);
+        log.info("Searching payments matching {} (page of {})", criteria, pageSize);
+
+        PaymentCursor position = cursor == null || cursor.isBlank() ? null : PaymentCursor.decode(cursor);
+        List<Payment> rows = this.paymentRepository.search(
+                PaymentSpecifications.matching(criteria).and(PaymentSpecifications.after(position)),
+                pageSize + 1);
+
+        return toCursorPage(rows, pageSize, expandOrder);
+    }
+
+    /**
+     * Payments with the given ids, in the order requested, read with a single IN query;
+     * unknown ids are left out
+     */
+    @Override
+    @ReadOnlyTransactional
+    public List<PaymentDto> findAllByIds(final Collection<Integer> paymentIds, final boolean expandOrder) {
+        List<Integer> ids = distinctIds(paymentIds);
+        log.info("Fetching {} payments by id (expand order: {})", ids.size(), expandOrder);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, Integer> positions = positions(ids);
+        List<Payment> rows = new ArrayList<>(this.paymentRepository.findAllById(ids));
+        rows.sort(Comparator.comparing(payment -> positions.get(payment.getPaymentId())));
+        return toDtos(rows, expandOrder);
+    }
+
+    /**
+     * Payments of the given orders, grouped in the order requested, read with a single IN query
+     */
+    @Override
+    @ReadOnlyTransactional
+    public List<PaymentDto> findAllByOrderIds(final Collection<Integer> orderIds, final boolean expandOrder) {
+        List<Integer> ids = distinctIds(orderIds);
+        log.info("Fetching payments of {} orders (expand order: {})", ids.size(), expandOrder);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, Integer> positions = positions(ids);
+        List<Payment> rows = new ArrayList<>(this.paymentRepository.findAllByOrderIdIn(ids));
+        rows.sort(Comparator.<Payment, Integer>comparing(payment -> positions.get(payment.getOrderId()))
+                .thenComparing(Payment::getPaymentId));
+        return toDtos(rows, expandOrder);
+    }
+
+    @Override
+    @ReadOnlyTransactional
     public PaymentDto findById(final Integer paymentId) {
-        log.info("Fetching payment with id: {}", paymentId);
+        return findById(paymentId, true);
+    }
+
+    @Override
+    @ReadOnlyTransactional
+    public PaymentDto findById(final Integer paymentId, final boolean expandOrder) {
+        log.info("Fetching payment with id: {} (expand order: {})", paymentId, expandOrder);
         
+        // Final payments may have moved to the archive; the hot table is checked first
         PaymentDto paymentDto = this.paymentRepository.findById(paymentId)
                 .map(PaymentMappingHelper::map)
+                .or(() -> this.archivedPaymentRepository.findById(paymentId).map(PaymentMappingHelper::map))
                 .orElseThrow(() -> new ResourceNotFoundException(
                         ErrorCode.PAYMENT_NOT_FOUND, paymentId));
 
-        enrichWithOrderData(paymentDto);
+        if (expandOrder) {
+            enrichWithOrderData(paymentDto);
+        } else {
+            PaymentMappingHelper.referenceOrder(paymentDto);
+        }
         return paymentDto;
     }
 
@@ -75,12 +228,16 @@ public class PaymentServiceImpl implements PaymentService {
         
         try {
             validateOrderId(paymentDto);
+            // Index-only check on uk_payments_order_id, so duplicates never reach ORDER-SERVICE
+            ensureNoPaymentForOrder(paymentDto.getOrderDto().getOrderId());
+            // An order created since its last 404 must not be rejected from the negative cache
+            this.orderServiceClient.forgetMissingOrder(paymentDto.getOrderDto().getOrderId());
             OrderDto orderDto = verifyOrderEligibility(paymentDto.getOrderDto().getOrderId());
             
-            PaymentDto savedPayment = PaymentMappingHelper.map(
-                    this.paymentRepository.save(PaymentMappingHelper.mapForPayment(paymentDto)));
+            PaymentDto savedPayment = PaymentMappingHelper.map(insert(PaymentMappingHelper.mapForPayment(paymentDto)));
             
-            updateOrderStatus(paymentDto.getOrderDto().getOrderId());
+            // Delivered to ORDER-SERVICE by the outbox relay once this transaction commits
+            this.orderStatusOutboxService.enqueue(paymentDto.getOrderDto().getOrderId());
             
             savedPayment.setOrderDto(orderDto);
             
@@ -101,50 +258,152 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    /**
+     * Creates one payment per item, reporting the items that cannot be paid instead of
+     * failing the request. The whole batch costs one existence query, one batched
+     * ORDER-SERVICE lookup and JDBC-batched inserts of the payments and their outbox entries.
+     */
     @Override
+    @Transactional
+    public BulkOperationResponse<PaymentDto> saveAll(final List<PaymentDto> paymentDtos) {
+        int maxItems = this.paymentProperties.getBulk().getMaxItems();
+        if (paymentDtos == null || paymentDtos.isEmpty() || paymentDtos.size() > maxItems) {
+            throw new InvalidInputException(ErrorCode.INVALID_INPUT,
+                    "A bulk request must hold between 1 and " + maxItems + " payments");
+        }
+        log.info("Saving {} payments in bulk", paymentDtos.size());
+
+        List<BulkItemResult<PaymentDto>> results = new ArrayList<>(Collections.nCopies(paymentDtos.size(), null));
+        Map<Integer, Integer> indexByOrderId = new LinkedHashMap<>();
+        for (int index = 0; index < paymentDtos.size(); index++) {
+            PaymentDto paymentDto = paymentDtos.get(index);
+            Integer orderId = paymentDto == null || paymentDto.getOrderDto() == null
+                    ? null
+                    : paymentDto.getOrderDto().getOrderId();
+            if (orderId == null) {
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.MISSING_REQUIRED_FIELD, "Order ID is required"));
+            } else if (indexByOrderId.putIfAbsent(orderId, index) != null) {
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.PAYMENT_ALREADY_EXISTS, "Order " + orderId + " appears more than once in this request"));
+            }
+        }
+
+        if (!indexByOrderId.isEmpty()) {
+            List<Integer> paidOrderIds = new ArrayList<>(this.paymentRepository.findPaidOrderIds(indexByOrderId.keySet()));
+            paidOrderIds.addAll(this.archivedPaymentRepository.findPaidOrderIds(indexByOrderId.keySet()));
+            for (Integer orderId : paidOrderIds) {
+                int index = indexByOrderId.remove(orderId);
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.PAYMENT_ALREADY_EXISTS, ErrorCode.PAYMENT_ALREADY_EXISTS.formatMessage(orderId)));
+            }
+        }
+
+        Map<Integer, OrderDto> orders = Collections.emptyMap();
+        if (!indexByOrderId.isEmpty()) {
+            indexByOrderId.keySet().forEach(this.orderServiceClient::forgetMissingOrder);
+            // Past the snapshot cache: a stale ORDERED must not let a canceled or paid order through
+            orders = this.orderServiceClient.fetchCurrentOrdersByIds(indexByOrderId.keySet());
+        }
+
+        List<Payment> payable = new ArrayList<>(indexByOrderId.size());
+        for (Map.Entry<Integer, Integer> entry : indexByOrderId.entrySet()) {
+            Integer orderId = entry.getKey();
+            int index = entry.getValue();
+            OrderDto orderDto = orders.get(orderId);
+            if (orderDto == null) {
+                // Unknown to ORDER-SERVICE, or it could not be reached for this order
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.ORDER_NOT_FOUND, ErrorCode.ORDER_NOT_FOUND.formatMessage(orderId)));
+            } else if (!OrderStatus.ORDERED.name().equals(orderDto.getOrderStatus())) {
+                results.set(index, BulkItemResult.failure(index, ErrorCode.INVALID_ORDER_STATUS,
+                        "Cannot process payment for order with status: " + orderDto.getOrderStatus()));
+            } else {
+                payable.add(PaymentMappingHelper.mapForPayment(paymentDtos.get(index)));
+            }
+        }
+
+        if (!payable.isEmpty()) {
+            insertAll(payable);
+            this.orderStatusOutboxService.enqueueAll(payable.stream()
+                    .map(Payment::getOrderId)
+                    .collect(Collectors.toList()));
+        }
+
+        for (Payment payment : payable) {
+            PaymentDto savedPayment = PaymentMappingHelper.map(payment);
+            savedPayment.setOrderDto(orders.get(payment.getOrderId()));
+            businessMetrics.recordPaymentAttempt(savedPayment.getPaymentStatus());
+            int index = indexByOrderId.get(payment.getOrderId());
+            results.set(index, BulkItemResult.success(index, savedPayment));
+        }
+
+        BulkOperationResponse<PaymentDto> response = BulkOperationResponse.of(results);
+        log.info("Bulk save created {} of {} payments", response.getSucceeded(), paymentDtos.size());
+        return response;
+    }
+
+    @Override
+    @RetryOnConflict
     public PaymentDto updateStatus(final int paymentId) {
         log.info("Updating payment status for id: {}", paymentId);
 
-        Payment payment = this.paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        ErrorCode.PAYMENT_NOT_FOUND, paymentId));
+        Payment payment = findPayment(paymentId);
 
-        PaymentStatus oldStatus = payment.getPaymentStatus();
-        PaymentStatus newStatus = determineNextStatus(oldStatus);
-        payment.setPaymentStatus(newStatus);
+        PaymentTransition transition = this.paymentStateMachine.transition(payment, PaymentEvent.ADVANCE);
+        Instant now = Instant.now();
+        apply(payment, transition, now);
         
-        PaymentDto updatedPayment = PaymentMappingHelper.map(this.paymentRepository.save(payment));
+        PaymentDto updatedPayment = PaymentMappingHelper.map(payment);
+        updatedPayment.setPaymentStatus(transition.getTo());
         
-        // Registrar métricas de negocio
-        businessMetrics.recordPaymentStatusChange(oldStatus, newStatus);
+        // Registrar métricas de negocio e historial
+        this.paymentStateMachine.applied(transition, List.of(payment.getPaymentId()), now);
         
         return updatedPayment;
     }
 
+    /**
+     * Advances each payment one step, under the rules of {@link #updateStatus}. Costs one
+     * locking read and one conditional UPDATE per status the payments start from.
+     */
     @Override
     @Transactional
+    public BulkOperationResponse<PaymentDto> updateStatusAll(final List<Integer> paymentIds) {
+        return transitionAll(paymentIds, PaymentEvent.ADVANCE);
+    }
+
+    @Override
+    @Transactional
+    @RetryOnConflict
     public void deleteById(final Integer paymentId) {
         log.info("Canceling payment with id: {}", paymentId);
 
-        Payment payment = this.paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new ResourceNotFoundException(
-                        ErrorCode.PAYMENT_NOT_FOUND, paymentId));
-
-        validateCancellationEligibility(payment);
+        Payment payment = findPayment(paymentId);
 
-        PaymentStatus oldStatus = payment.getPaymentStatus();
-        payment.setPaymentStatus(PaymentStatus.CANCELED);
-        this.paymentRepository.save(payment);
+        PaymentTransition transition = this.paymentStateMachine.transition(payment, PaymentEvent.CANCEL);
+        Instant now = Instant.now();
+        apply(payment, transition, now);
         
-        // Registrar métricas de negocio
-        businessMetrics.recordPaymentStatusChange(oldStatus, PaymentStatus.CANCELED);
+        // Registrar métricas de negocio e historial
+        this.paymentStateMachine.applied(transition, List.of(payment.getPaymentId()), now);
         
         log.info("Payment with id {} has been canceled", paymentId);
     }
 
+    /**
+     * Cancels each payment, under the rules of {@link #deleteById}, in as many statements
+     * as {@link #updateStatusAll}
+     */
+    @Override
+    @Transactional
+    public BulkOperationResponse<PaymentDto> deleteAllByIds(final List<Integer> paymentIds) {
+        return transitionAll(paymentIds, PaymentEvent.CANCEL);
+    }
+
     private boolean filterByOrderStatus(PaymentDto paymentDto) {
         try {
-            OrderDto orderDto = fetchOrderById(paymentDto.getOrderDto().getOrderId());
+            OrderDto orderDto = this.orderServiceClient.fetchOrderById(paymentDto.getOrderDto().getOrderId());
             boolean isInPayment = "IN_PAYMENT".equalsIgnoreCase(orderDto.getOrderStatus());
             
             if (isInPayment) {
@@ -161,7 +420,7 @@ public class PaymentServiceImpl implements PaymentService {
 
     private void enrichWithOrderData(PaymentDto paymentDto) {
         try {
-            OrderDto orderDto = fetchOrderById(paymentDto.getOrderDto().getOrderId());
+            OrderDto orderDto = this.orderServiceClient.fetchOrderById(paymentDto.getOrderDto().getOrderId());
             paymentDto.setOrderDto(orderDto);
         } catch (HttpClientErrorException.NotFound e) {
             throw new ResourceNotFoundException(
@@ -174,17 +433,96 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private PaymentDto enrichWithOrderDataSafely(PaymentDto paymentDto) {
+    private void enrichWithOrderDataInBulk(List<PaymentDto> payments) {
+        Set<Integer> orderIds = payments.stream()
+                .map(paymentDto -> paymentDto.getOrderDto().getOrderId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        Map<Integer, OrderDto> orders;
         try {
-            OrderDto orderDto = fetchOrderById(paymentDto.getOrderDto().getOrderId());
-            paymentDto.setOrderDto(orderDto);
+            orders = this.orderServiceClient.fetchOrdersByIds(orderIds);
         } catch (Exception e) {
-            log.warn("Could not fetch order {} for payment {}: {}", 
-                    paymentDto.getOrderDto().getOrderId(), 
-                    paymentDto.getPaymentId(),
-                    e.getMessage());
+            log.warn("Could not fetch orders for {} payments: {}", payments.size(), e.getMessage());
+            return;
         }
-        return paymentDto;
+
+        payments.forEach(paymentDto -> {
+            OrderDto orderDto = orders.get(paymentDto.getOrderDto().getOrderId());
+            if (orderDto != null) {
+                paymentDto.setOrderDto(orderDto);
+            } else {
+                log.warn("Could not fetch order {} for payment {}",
+                        paymentDto.getOrderDto().getOrderId(),
+                        paymentDto.getPaymentId());
+            }
+        });
+    }
+
+    /**
+     * @param rows up to {@code pageSize + 1} rows; the extra one only signals that more follow
+     */
+    private DtoCursorPageResponse<PaymentDto> toCursorPage(List<Payment> rows, int pageSize, boolean expandOrder) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Payment> page = hasMore ? rows.subList(0, pageSize) : rows;
+        List<PaymentDto> payments = page.stream()
+                .map(PaymentMappingHelper::map)
+                .collect(Collectors.toList());
+        if (expandOrder) {
+            enrichWithOrderDataInBulk(payments);
+        } else {
+            payments.forEach(PaymentMappingHelper::referenceOrder);
+        }
+
+        return DtoCursorPageResponse.<PaymentDto>builder()
+                .collection(payments)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? PaymentCursor.after(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    private List<Integer> distinctIds(Collection<Integer> ids) {
+        List<Integer> distinct = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        int maxIds = this.paymentProperties.getLookup().getMaxIds();
+        if (distinct.size() > maxIds) {
+            throw new InvalidInputException(ErrorCode.INVALID_INPUT,
+                    "At most " + maxIds + " ids can be requested at once");
+        }
+        return distinct;
+    }
+
+    private static Map<Integer, Integer> positions(List<Integer> ids) {
+        Map<Integer, Integer> positions = new HashMap<>(ids.size() * 2);
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
+        return positions;
+    }
+
+    private List<PaymentDto> toDtos(List<Payment> rows, boolean expandOrder) {
+        List<PaymentDto> payments = rows.stream()
+                .map(PaymentMappingHelper::map)
+                .collect(Collectors.toList());
+        if (expandOrder) {
+            enrichWithOrderDataInBulk(payments);
+        } else {
+            payments.forEach(PaymentMappingHelper::referenceOrder);
+        }
+        return payments;
+    }
+
+    private int resolvePageSize(Integer size) {
+        PaymentProperties.Page page = this.paymentProperties.getPage();
+        if (size == null) {
+            return Math.min(page.getDefaultSize(), page.getMaxSize());
+        }
+        if (size < 1) {
+            throw new InvalidInputException(ErrorCode.INVALID_INPUT, "Page size must be at least 1");
+        }
+        return Math.min(size, page.getMaxSize());
     }
 
     private void validateOrderId(PaymentDto paymentDto) {
@@ -194,9 +532,41 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
+    private void ensureNoPaymentForOrder(Integer orderId) {
+        if (this.paymentRepository.existsByOrderId(orderId)
+                || this.archivedPaymentRepository.existsByOrderId(orderId)) {
+            log.info("Rejecting duplicate payment for order {}", orderId);
+            throw new DuplicateResourceException(ErrorCode.PAYMENT_ALREADY_EXISTS, orderId);
+        }
+    }
+
+    /**
+     * The unique constraint settles a concurrent duplicate that passed the existence check
+     */
+    private Payment insert(Payment payment) {
+        try {
+            // Flushed now: with sequence ids the INSERT would otherwise wait for the commit
+            return this.paymentRepository.saveAndFlush(payment);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Concurrent duplicate payment for order {}", payment.getOrderId());
+            throw new DuplicateResourceException(ErrorCode.PAYMENT_ALREADY_EXISTS, payment.getOrderId());
+        }
+    }
+
+    private void insertAll(List<Payment> payments) {
+        try {
+            this.paymentJdbcRepository.insertAll(payments, this.paymentProperties.getBulk().getInsertBatchSize());
+        } catch (DataIntegrityViolationException e) {
+            log.info("Concurrent duplicate payment in bulk save of {} payments", payments.size());
+            throw new DuplicateResourceException(
+                    "Another request created a payment for one of these orders; retry the remaining ones");
+        }
+    }
+
     private OrderDto verifyOrderEligibility(Integer orderId) {
         try {
-            OrderDto orderDto = fetchOrderById(orderId);
+            // Past the snapshot cache: a stale ORDERED must not let a canceled or paid order through
+            OrderDto orderDto = this.orderServiceClient.fetchCurrentOrderById(orderId);
 
             if (orderDto == null) {
                 throw new ResourceNotFoundException(ErrorCode.ORDER_NOT_FOUND, orderId);
@@ -219,49 +589,122 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private void updateOrderStatus(Integer orderId) {
-        String patchUrl = AppConstant.DiscoveredDomainsApi.ORDER_SERVICE_API_URL 
-                + "/" + orderId + "/status";
-        
-        try {
-            this.restTemplate.patchForObject(patchUrl, null, Void.class);
-            log.info("Order status updated successfully for order ID: {}", orderId);
-        } catch (RestClientException e) {
-            log.error("Failed to update order status for order ID: {}", orderId, e);
-            throw new ExternalServiceException(
-                    "Payment saved but failed to update order status", e);
+    /**
+     * The payment from the hot table or, once archived, a detached copy from the archive;
+     * archived payments are final, so the state machine rejects any transition on them
+     */
+    private Payment findPayment(Integer paymentId) {
+        return this.paymentRepository.findById(paymentId)
+                .or(() -> this.archivedPaymentRepository.findById(paymentId).map(PaymentServiceImpl::fromArchive))
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        ErrorCode.PAYMENT_NOT_FOUND, paymentId));
+    }
+
+    private static Payment fromArchive(ArchivedPayment archived) {
+        return Payment.builder()
+                .paymentId(archived.getPaymentId())
+                .orderId(archived.getOrderId())
+                .isPayed(archived.getIsPayed())
+                .paymentStatus(archived.getPaymentStatus())
+                .version(archived.getVersion())
+                .build();
+    }
+
+    /**
+     * Writes the transition in one conditional UPDATE on status and version; zero rows
+     * means another request changed the payment since it was read
+     */
+    private void apply(Payment payment, PaymentTransition transition, Instant now) {
+        if (this.paymentRepository.transitionStatus(payment.getPaymentId(), transition.getFrom(),
+                payment.getVersion(), transition.getTo(), now) == 0) {
+            log.warn("Payment {} changed from {} (version {}) before it could move to {}",
+                    payment.getPaymentId(), transition.getFrom(), payment.getVersion(), transition.getTo());
+            throw new PaymentConflictException(ErrorCode.PAYMENT_CONCURRENTLY_MODIFIED, payment.getPaymentId());
         }
     }
 
-    private void validateCancellationEligibility(Payment payment) {
-        if (payment.getPaymentStatus() == PaymentStatus.COMPLETED) {
-            throw new InvalidPaymentStatusException(ErrorCode.PAYMENT_ALREADY_COMPLETED);
+    /**
+     * Applies {@code event} to every payment set-wise: the payments are read and locked
+     * with one query, then each transition group moves with one conditional UPDATE. Payments
+     * the state machine rejects, and unknown or repeated ids, are reported instead of failing
+     * the request.
+     */
+    private BulkOperationResponse<PaymentDto> transitionAll(List<Integer> paymentIds, PaymentEvent event) {
+        int maxItems = this.paymentProperties.getBulk().getMaxItems();
+        if (paymentIds == null || paymentIds.isEmpty() || paymentIds.size() > maxItems) {
+            throw new InvalidInputException(ErrorCode.INVALID_INPUT,
+                    "A bulk request must hold between 1 and " + maxItems + " payment ids");
+        }
+        log.info("Bulk {} of {} payments", event, paymentIds.size());
+
+        List<BulkItemResult<PaymentDto>> results = new ArrayList<>(Collections.nCopies(paymentIds.size(), null));
+        Map<Integer, Integer> indexById = new LinkedHashMap<>();
+        for (int index = 0; index < paymentIds.size(); index++) {
+            Integer paymentId = paymentIds.get(index);
+            if (paymentId == null) {
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.MISSING_REQUIRED_FIELD, "Payment ID is required"));
+            } else if (indexById.putIfAbsent(paymentId, index) != null) {
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.INVALID_INPUT, "Payment " + paymentId + " appears more than once in this request"));
+            }
         }
 
-        if (payment.getPaymentStatus() == PaymentStatus.CANCELED) {
-            throw new InvalidPaymentStatusException(ErrorCode.PAYMENT_ALREADY_CANCELED);
+        Map<Integer, Payment> payments = indexById.isEmpty()
+                ? new HashMap<>()
+                : this.paymentRepository.findAllByIdForUpdate(indexById.keySet()).stream()
+                        .collect(Collectors.toMap(Payment::getPaymentId, Function.identity()));
+        if (payments.size() < indexById.size()) {
+            // Archived payments are final, so the state machine rejects them like any other
+            List<Integer> notInHotTable = indexById.keySet().stream()
+                    .filter(paymentId -> !payments.containsKey(paymentId))
+                    .collect(Collectors.toList());
+            this.archivedPaymentRepository.findAllById(notInHotTable)
+                    .forEach(archived -> payments.put(archived.getPaymentId(), fromArchive(archived)));
         }
-    }
 
-    private PaymentStatus determineNextStatus(PaymentStatus currentStatus) {
-        switch (currentStatus) {
-            case NOT_STARTED:
-                return PaymentStatus.IN_PROGRESS;
-            case IN_PROGRESS:
-                return PaymentStatus.COMPLETED;
-            case COMPLETED:
-                throw new InvalidPaymentStatusException(ErrorCode.PAYMENT_ALREADY_COMPLETED);
-            case CANCELED:
-                throw new InvalidPaymentStatusException(ErrorCode.PAYMENT_ALREADY_CANCELED);
-            default:
-                throw new InvalidPaymentStatusException(
-                        ErrorCode.INVALID_PAYMENT_STATUS,
-                        "Unknown payment status: " + currentStatus);
+        // Transitions are singletons of the state machine, so they group by identity
+        Map<PaymentTransition, List<Payment>> groups = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> entry : indexById.entrySet()) {
+            int index = entry.getValue();
+            Payment payment = payments.get(entry.getKey());
+            if (payment == null) {
+                results.set(index, BulkItemResult.failure(index,
+                        ErrorCode.PAYMENT_NOT_FOUND, ErrorCode.PAYMENT_NOT_FOUND.formatMessage(entry.getKey())));
+                continue;
+            }
+            try {
+                PaymentTransition transition = this.paymentStateMachine.transition(payment, event);
+                groups.computeIfAbsent(transition, key -> new ArrayList<>()).add(payment);
+            } catch (InvalidPaymentStatusException e) {
+                results.set(index, BulkItemResult.failure(index, e.getErrorCode(), e.getMessage()));
+            }
         }
-    }
 
-    private OrderDto fetchOrderById(Integer orderId) {
-        String url = AppConstant.DiscoveredDomainsApi.ORDER_SERVICE_API_URL + "/" + orderId;
-        return this.restTemplate.getForObject(url, OrderDto.class);
+        Instant now = Instant.now();
+        groups.forEach((transition, group) -> {
+            List<Integer> ids = group.stream()
+                    .map(Payment::getPaymentId)
+                    .collect(Collectors.toList());
+            int updated = this.paymentRepository.transitionStatusAll(ids, transition.getFrom(), transition.getTo(), now);
+            if (updated != ids.size()) {
+                // Unreachable while findAllByIdForUpdate holds the row locks; kept so that a lost lock
+                // rolls the whole bulk back instead of reporting payments that were not changed
+                throw new PaymentConflictException(ErrorCode.PAYMENTS_CONCURRENTLY_MODIFIED,
+                        ids.size() - updated, ids.size());
+            }
+            this.paymentStateMachine.applied(transition, ids, now);
+
+            for (Payment payment : group) {
+                PaymentDto updatedPayment = PaymentMappingHelper.map(payment);
+                updatedPayment.setPaymentStatus(transition.getTo());
+                int index = indexById.get(payment.getPaymentId());
+                results.set(index, BulkItemResult.success(index, updatedPayment));
+            }
+        });
+
+        BulkOperationResponse<PaymentDto> response = BulkOperationResponse.of(results);
+        log.info("Bulk {} applied to {} of {} payments", event, response.getSucceeded(), paymentIds.size());
+        return response;
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.selimhorri.app.service.impl;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+
+import org.springframework.stereotype.Service;
+
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.datasource.ReadOnlyTransactional;
+import com.selimhorri.app.domain.ArchivedPayment;
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatusHistory;
+import com.selimhorri.app.dto.PaymentStatusHistoryDto;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.ResourceNotFoundException;
+import com.selimhorri.app.repository.ArchivedPaymentRepository;
+import com.selimhorri.app.repository.PaymentRepository;
+import com.selimhorri.app.repository.PaymentStatusHistoryJdbcRepository;
+import com.selimhorri.app.repository.PaymentStatusHistoryRepository;
+import com.selimhorri.app.service.PaymentStatusHistoryService;
+import com.selimhorri.app.statemachine.PaymentTransition;
+import com.selimhorri.app.statemachine.PaymentTransitionListener;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Appends every applied transition to {@code payment_status_history}, in the transaction
+ * that applied it, and reads a payment's history back with the time spent in each status
+ */
+@Service
+@Transactional
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentStatusHistoryServiceImpl implements PaymentStatusHistoryService, PaymentTransitionListener {
+
+    private final PaymentStatusHistoryRepository historyRepository;
+    private final PaymentStatusHistoryJdbcRepository historyJdbcRepository;
+    private final PaymentRepository paymentRepository;
+    private final ArchivedPaymentRepository archivedPaymentRepository;
+    private final PaymentProperties paymentProperties;
+
+    @Override
+    @Transactional(TxType.MANDATORY)
+    public void onTransition(final PaymentTransition transition, final List<Integer> paymentIds,
+            final Instant appliedAt) {
+        this.historyJdbcRepository.insertAll(transition, paymentIds, appliedAt,
+                this.paymentProperties.getBulk().getInsertBatchSize());
+        log.debug("Recorded {} for {} payments", transition, paymentIds.size());
+    }
+
+    @Override
+    @ReadOnlyTransactional
+    public List<PaymentStatusHistoryDto> findByPaymentId(final Integer paymentId) {
+        log.info("Fetching status history of payment {}", paymentId);
+        Instant createdAt = this.paymentRepository.findById(paymentId)
+                .map(Payment::getCreatedAt)
+                .or(() -> this.archivedPaymentRepository.findById(paymentId).map(ArchivedPayment::getCreatedAt))
+                .orElseThrow(() -> new ResourceNotFoundException(ErrorCode.PAYMENT_NOT_FOUND, paymentId));
+
+        List<PaymentStatusHistory> rows = this.historyRepository.findAllByPaymentIdOrderByChangedAtAscHistoryIdAsc(paymentId);
+        List<PaymentStatusHistoryDto> history = new ArrayList<>(rows.size());
+        Instant enteredAt = createdAt;
+        for (PaymentStatusHistory row : rows) {
+            history.add(PaymentStatusHistoryDto.builder()
+                    .fromStatus(row.getFromStatus())
+                    .toStatus(row.getToStatus())
+                    .event(row.getEvent())
+                    .changedAt(row.getChangedAt())
+                    .millisInFromStatus(Duration.between(enteredAt, row.getChangedAt()).toMillis())
+                    .build());
+            enteredAt = row.getChangedAt();
+        }
+        return history;
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.selimhorri.app.statemachine;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
+
+/**
+ * The payment lifecycle as a table of (event, status) to transition, built once. Resolving
+ * a transition is two {@link EnumMap} reads and allocates nothing, so the single, bulk and
+ * compare-and-set update paths all use it; the transition's {@code from} is what the
+ * conditional UPDATE expects to find. Guards and listeners are the registered beans, in
+ * {@code @Order}.
+ */
+@Component
+public class PaymentStateMachine {
+
+    private static final Map<PaymentEvent, Map<PaymentStatus, PaymentTransition>> TRANSITIONS =
+            new EnumMap<>(PaymentEvent.class);
+    private static final Map<PaymentStatus, ErrorCode> FINAL_STATUSES = new EnumMap<>(PaymentStatus.class);
+
+    static {
+        for (PaymentEvent event : PaymentEvent.values()) {
+            TRANSITIONS.put(event, new EnumMap<>(PaymentStatus.class));
+        }
+        allow(PaymentEvent.ADVANCE, PaymentStatus.NOT_STARTED, PaymentStatus.IN_PROGRESS);
+        allow(PaymentEvent.ADVANCE, PaymentStatus.IN_PROGRESS, PaymentStatus.COMPLETED);
+        allow(PaymentEvent.CANCEL, PaymentStatus.NOT_STARTED, PaymentStatus.CANCELED);
+        allow(PaymentEvent.CANCEL, PaymentStatus.IN_PROGRESS, PaymentStatus.CANCELED);
+
+        FINAL_STATUSES.put(PaymentStatus.COMPLETED, ErrorCode.PAYMENT_ALREADY_COMPLETED);
+        FINAL_STATUSES.put(PaymentStatus.CANCELED, ErrorCode.PAYMENT_ALREADY_CANCELED);
+    }
+
+    private final PaymentTransitionGuard[] guards;
+    private final PaymentTransitionListener[] listeners;
+
+    public PaymentStateMachine(final List<PaymentTransitionGuard> guards,
+            final List<PaymentTransitionListener> listeners) {
+        this.guards = guards.toArray(new PaymentTransitionGuard[0]);
+        this.listeners = listeners.toArray(new PaymentTransitionListener[0]);
+    }
+
+    private static void allow(PaymentEvent event, PaymentStatus from, PaymentStatus to) {
+        TRANSITIONS.get(event).put(from, new PaymentTransition(from, event, to));
+    }
+
+    /**
+     * @throws InvalidPaymentStatusException when {@code event} cannot happen to a payment in {@code from}
+     */
+    public PaymentTransition transition(final PaymentStatus from, final PaymentEvent event) {
+        PaymentTransition transition = TRANSITIONS.get(event).get(from);
+        if (transition == null) {
+            throw reject(from, event);
+        }
+        return transition;
+    }
+
+    /**
+     * The transition {@code event} takes {@code payment} through, once the guards accept it
+     *
+     * @throws InvalidPaymentStatusException when the table or a guard rejects it
+     */
+    public PaymentTransition transition(final Payment payment, final PaymentEvent event) {
+        PaymentTransition transition = transition(payment.getPaymentStatus(), event);
+        for (PaymentTransitionGuard guard : this.guards) {
+            guard.check(payment, transition);
+        }
+        return transition;
+    }
+
+    /**
+     * Runs the listeners for payments that were just written in {@code transition}
+     */
+    public void applied(final PaymentTransition transition, final List<Integer> paymentIds, final Instant appliedAt) {
+        if (paymentIds.isEmpty()) {
+            return;
+        }
+        for (PaymentTransitionListener listener : this.listeners) {
+            listener.onTransition(transition, paymentIds, appliedAt);
+        }
+    }
+
+    private static InvalidPaymentStatusException reject(PaymentStatus from, PaymentEvent event) {
+        ErrorCode errorCode = FINAL_STATUSES.get(from);
+        if (errorCode != null) {
+            return new InvalidPaymentStatusException(errorCode);
+        }
+        return new InvalidPaymentStatusException(ErrorCode.INVALID_PAYMENT_STATUS,
+                "Cannot " + event.name().toLowerCase() + " a payment in status " + from);
+    }
+
+}
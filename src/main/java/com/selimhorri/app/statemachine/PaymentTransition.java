@@ -0,0 +1,42 @@
+package com.selimhorri.app.statemachine;
+
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
+
+import lombok.Getter;
+
+/**
+ * One allowed move of the payment lifecycle. Every instance is built once, with the
+ * transition table, so transitions can be compared and grouped by identity.
+ */
+@Getter
+public final class PaymentTransition {
+
+    private final PaymentStatus from;
+    private final PaymentEvent event;
+    private final PaymentStatus to;
+
+    /**
+     * The payment reaches COMPLETED, i.e. it succeeded
+     */
+    private final boolean completing;
+
+    /**
+     * The payment reaches CANCELED, i.e. it failed
+     */
+    private final boolean canceling;
+
+    PaymentTransition(final PaymentStatus from, final PaymentEvent event, final PaymentStatus to) {
+        this.from = from;
+        this.event = event;
+        this.to = to;
+        this.completing = to == PaymentStatus.COMPLETED && from != PaymentStatus.COMPLETED;
+        this.canceling = to == PaymentStatus.CANCELED && from != PaymentStatus.CANCELED;
+    }
+
+    @Override
+    public String toString() {
+        return this.from + " -" + this.event + "-> " + this.to;
+    }
+
+}
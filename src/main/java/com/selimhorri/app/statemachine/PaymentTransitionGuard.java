@@ -0,0 +1,16 @@
+package com.selimhorri.app.statemachine;
+
+import com.selimhorri.app.domain.Payment;
+
+/**
+ * Extra precondition on transitions the table allows, checked before anything is written
+ */
+@FunctionalInterface
+public interface PaymentTransitionGuard {
+	
+	/**
+	 * @throws com.selimhorri.app.exception.custom.InvalidPaymentStatusException to reject the transition
+	 */
+	void check(final Payment payment, final PaymentTransition transition);
+	
+}
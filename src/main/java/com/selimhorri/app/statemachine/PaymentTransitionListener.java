@@ -0,0 +1,18 @@
+package com.selimhorri.app.statemachine;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Side effect of a transition, run once it has been written, within the same transaction
+ */
+@FunctionalInterface
+public interface PaymentTransitionListener {
+	
+	/**
+	 * @param paymentIds payments that took this transition together, one outside bulk operations
+	 * @param appliedAt the {@code updated_at} the transition wrote
+	 */
+	void onTransition(final PaymentTransition transition, final List<Integer> paymentIds, final Instant appliedAt);
+	
+}
@@ -0,0 +1,56 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Range-partitions payments by UNIX_TIMESTAMP(created_at) on MySQL, so queries bounded on
+ * created_at only read the months they cover and expired months leave by dropping a partition
+ * rather than a DELETE. The migration only creates the catch-all pmax partition, the same
+ * layout wherever and whenever it runs; the partition maintenance job splits the months off it.
+ * MySQL wants the partitioning column in every unique key, so the primary key becomes
+ * (payment_id, created_at) and one payment per order moves from uk_payments_order_id to
+ * payment_order_keys, filled by an insert trigger. Creating that trigger needs the TRIGGER
+ * privilege and, with binary logging on, SUPER or log_bin_trust_function_creators=1; without
+ * them the migration stops before it changes payments. H2 keeps the unpartitioned table untouched.
+ */
+public class V12__partition_payments_by_month extends BaseJavaMigration {
+
+    @Override
+    public void migrate(final Context context) throws Exception {
+        Connection connection = context.getConnection();
+        if (!connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql")) {
+            return;
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE payment_order_keys ("
+                    + "order_id INT NOT NULL PRIMARY KEY, payment_id INT NOT NULL)");
+            try {
+                statement.execute("CREATE TRIGGER trg_payments_order_key AFTER INSERT ON payments FOR EACH ROW "
+                        + "INSERT INTO payment_order_keys (order_id, payment_id) "
+                        + "SELECT NEW.order_id, NEW.payment_id FROM DUAL WHERE NEW.order_id IS NOT NULL");
+            } catch (SQLException e) {
+                // MySQL DDL does not roll back, so leave the schema as V11 left it
+                statement.execute("DROP TABLE payment_order_keys");
+                throw new IllegalStateException("Cannot create trg_payments_order_key: the migration user needs "
+                        + "the TRIGGER privilege and, with binary logging on, SUPER or "
+                        + "log_bin_trust_function_creators=1", e);
+            }
+            // IGNORE skips payments the trigger has already recorded since it was created
+            statement.execute("INSERT IGNORE INTO payment_order_keys (order_id, payment_id) "
+                    + "SELECT order_id, payment_id FROM payments WHERE order_id IS NOT NULL");
+
+            statement.execute("ALTER TABLE payments DROP PRIMARY KEY, ADD PRIMARY KEY (payment_id, created_at), "
+                    + "DROP INDEX uk_payments_order_id, ADD INDEX idx_payments_order_id (order_id)");
+            statement.execute("ALTER TABLE payments PARTITION BY RANGE (UNIX_TIMESTAMP(created_at)) "
+                    + "(PARTITION pmax VALUES LESS THAN MAXVALUE)");
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package db.migration;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Locale;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * One payment per order: replaces idx_payments_order_id with the unique uk_payments_order_id.
+ * Written in Java because H2 and MySQL disagree on DROP INDEX syntax, and so that existing
+ * duplicates stop the migration with a readable message instead of a constraint error.
+ */
+public class V7__unique_payments_order_id extends BaseJavaMigration {
+    
+    @Override
+    public void migrate(final Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet duplicates = statement.executeQuery(
+                    "SELECT order_id, COUNT(*) FROM payments WHERE order_id IS NOT NULL "
+                    + "GROUP BY order_id HAVING COUNT(*) > 1")) {
+                if (duplicates.next()) {
+                    throw new IllegalStateException("Order " + duplicates.getInt(1) + " has "
+                            + duplicates.getInt(2) + " payments; resolve duplicate payments before migrating");
+                }
+            }
+            
+            statement.execute("ALTER TABLE payments ADD CONSTRAINT uk_payments_order_id UNIQUE (order_id)");
+            
+            boolean mysql = connection.getMetaData().getDatabaseProductName()
+                    .toLowerCase(Locale.ROOT).contains("mysql");
+            statement.execute(mysql
+                    ? "DROP INDEX idx_payments_order_id ON payments"
+                    : "DROP INDEX idx_payments_order_id");
+        }
+    }
+    
+}
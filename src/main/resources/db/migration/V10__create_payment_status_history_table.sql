@@ -0,0 +1,12 @@
+CREATE TABLE payment_status_history (
+	history_id BIGINT NOT NULL PRIMARY KEY AUTO_INCREMENT,
+	payment_id INT NOT NULL,
+	from_status VARCHAR(32) NOT NULL,
+	to_status VARCHAR(32) NOT NULL,
+	event VARCHAR(16) NOT NULL,
+	changed_at TIMESTAMP(3) NOT NULL
+);
+
+-- One payment's history in order, and every entry into a status within a time range
+CREATE INDEX idx_status_history_payment_changed ON payment_status_history (payment_id, changed_at);
+CREATE INDEX idx_status_history_to_status_changed ON payment_status_history (to_status, changed_at);
@@ -0,0 +1,13 @@
+-- Cold tier for COMPLETED and CANCELED payments, moved out of payments by the archiver
+CREATE TABLE payments_archive (
+	payment_id INT NOT NULL PRIMARY KEY,
+	order_id INT,
+	is_payed BOOLEAN,
+	payment_status VARCHAR(255),
+	version BIGINT DEFAULT 0 NOT NULL,
+	created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	updated_at TIMESTAMP,
+	archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+CREATE UNIQUE INDEX uk_payments_archive_order_id ON payments_archive (order_id);
@@ -0,0 +1 @@
+CREATE INDEX idx_payments_created_at_id ON payments (created_at, payment_id);
@@ -0,0 +1,2 @@
+CREATE INDEX idx_payments_status_created_at ON payments (payment_status, created_at);
+CREATE INDEX idx_payments_order_id ON payments (order_id);
@@ -0,0 +1,12 @@
+CREATE TABLE order_status_outbox (
+	outbox_id BIGINT NOT NULL PRIMARY KEY AUTO_INCREMENT,
+	order_id INT NOT NULL,
+	status VARCHAR(32) NOT NULL,
+	attempts INT NOT NULL DEFAULT 0,
+	next_attempt_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	last_error VARCHAR(512),
+	created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	updated_at TIMESTAMP
+);
+
+CREATE INDEX idx_outbox_status_next_attempt ON order_status_outbox (status, next_attempt_at);
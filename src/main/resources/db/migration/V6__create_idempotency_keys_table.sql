@@ -0,0 +1,12 @@
+CREATE TABLE idempotency_keys (
+	idempotency_key VARCHAR(128) NOT NULL PRIMARY KEY,
+	request_hash VARCHAR(64) NOT NULL,
+	status VARCHAR(16) NOT NULL,
+	response_status INT,
+	response_body LONGTEXT,
+	expires_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	updated_at TIMESTAMP
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,7 @@
+-- Backs the pooled-lo generator of payments.payment_id; next_val is the first id of the next block
+CREATE TABLE payment_id_sequence (
+	next_val BIGINT NOT NULL
+);
+
+INSERT INTO payment_id_sequence (next_val)
+SELECT COALESCE(MAX(payment_id), 0) + 1 FROM payments;
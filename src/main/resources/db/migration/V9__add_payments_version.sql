@@ -0,0 +1,2 @@
+-- Optimistic locking version of payments; existing rows start at 0
+ALTER TABLE payments ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
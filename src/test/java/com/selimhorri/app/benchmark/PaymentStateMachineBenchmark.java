@@ -0,0 +1,93 @@
+package com.selimhorri.app.benchmark;
+
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
+import com.selimhorri.app.statemachine.PaymentStateMachine;
+import com.selimhorri.app.statemachine.PaymentTransition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transition lookup of {@link PaymentStateMachine} against the switch it replaced. Run with
+ * {@code mvn test-compile exec:exec} (see the exec-maven-plugin in the pom); the GC profiler
+ * should report ~0 B/op for both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentStateMachineBenchmark {
+
+    @Param({ "NOT_STARTED", "IN_PROGRESS" })
+    private PaymentStatus status;
+
+    private PaymentStateMachine stateMachine;
+    private PaymentStateMachine guardedStateMachine;
+    private Payment payment;
+    private List<Integer> paymentIds;
+    private Instant appliedAt;
+
+    @Setup
+    public void setUp() {
+        stateMachine = new PaymentStateMachine(List.of(), List.of());
+        guardedStateMachine = new PaymentStateMachine(
+                List.of((payment, transition) -> {
+                }),
+                List.of((transition, paymentIds, appliedAt) -> {
+                }));
+        payment = Payment.builder().paymentId(1).paymentStatus(status).isPayed(false).build();
+        paymentIds = List.of(payment.getPaymentId());
+        appliedAt = Instant.now();
+    }
+
+    @Benchmark
+    public PaymentStatus switchLookup() {
+        switch (status) {
+            case NOT_STARTED:
+                return PaymentStatus.IN_PROGRESS;
+            case IN_PROGRESS:
+                return PaymentStatus.COMPLETED;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    @Benchmark
+    public PaymentTransition tableLookup() {
+        return stateMachine.transition(status, PaymentEvent.ADVANCE);
+    }
+
+    @Benchmark
+    public PaymentTransition guardedLookupAndApplied() {
+        PaymentTransition transition = guardedStateMachine.transition(payment, PaymentEvent.ADVANCE);
+        guardedStateMachine.applied(transition, paymentIds, appliedAt);
+        return transition;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaymentStateMachineBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,128 @@
+package com.selimhorri.app.client;
+
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OrderLookupBatcherTest {
+
+    private final OrderServiceGateway gateway = mock(OrderServiceGateway.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private OrderClientProperties properties;
+    private OrderLookupBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OrderClientProperties();
+        // Every lookup joins a micro-batch
+        properties.getMicroBatch().setMinConcurrency(0);
+        when(gateway.fetchOrder(1)).thenReturn(OrderDto.builder().orderId(1).orderStatus("ORDERED").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+        callers.shutdownNow();
+    }
+
+    private void startBatcher() {
+        batcher = new OrderLookupBatcher(properties, gateway, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("fetch_WhenShutDown_LooksOrderUpDirectly")
+    void fetch_WhenShutDown_LooksOrderUpDirectly() {
+        // Arrange
+        startBatcher();
+        batcher.shutdown();
+
+        // Act
+        OrderDto orderDto = batcher.fetch(1);
+
+        // Assert
+        assertThat(orderDto.getOrderId()).isEqualTo(1);
+        verify(gateway, never()).fetchOrders(anyList());
+    }
+
+    @Test
+    @DisplayName("fetch_WhenPendingBatchIsDroppedAtShutdown_FailsLookup")
+    void fetch_WhenPendingBatchIsDroppedAtShutdown_FailsLookup() throws Exception {
+        // Arrange
+        properties.getMicroBatch().setWindow(Duration.ofMinutes(1));
+        startBatcher();
+        Future<OrderDto> lookup = callers.submit(() -> batcher.fetch(1));
+        Thread.sleep(100);
+
+        // Act
+        batcher.shutdown();
+
+        // Assert
+        assertThatThrownBy(() -> lookup.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ResourceAccessException.class);
+        verify(gateway, never()).fetchOrder(1);
+        verify(gateway, never()).fetchOrders(anyList());
+    }
+
+    @Test
+    @DisplayName("fetch_WhenBatchCallFails_FailsEveryLookupWithoutRetryingAlone")
+    void fetch_WhenBatchCallFails_FailsEveryLookupWithoutRetryingAlone() throws Exception {
+        // Arrange
+        properties.getMicroBatch().setMaxBatchSize(2);
+        properties.getMicroBatch().setWindow(Duration.ofMinutes(1));
+        ResourceAccessException failure = new ResourceAccessException("ORDER-SERVICE unavailable");
+        when(gateway.fetchOrders(anyList())).thenThrow(failure);
+        startBatcher();
+
+        // Act
+        Future<OrderDto> first = callers.submit(() -> batcher.fetch(1));
+        Future<OrderDto> second = callers.submit(() -> batcher.fetch(2));
+
+        // Assert
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        verify(gateway).fetchOrders(anyList());
+        verify(gateway, never()).fetchOrder(any());
+    }
+
+    @Test
+    @DisplayName("fetch_WhenBatchOutlastsClientTimeouts_FailsLookup")
+    void fetch_WhenBatchOutlastsClientTimeouts_FailsLookup() throws Exception {
+        // Arrange
+        properties.getMicroBatch().setWindow(Duration.ofMillis(1));
+        properties.setConnectTimeout(Duration.ZERO);
+        properties.setReadTimeout(Duration.ofMillis(100));
+        when(gateway.fetchOrders(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return Map.of();
+        });
+        startBatcher();
+
+        // Act
+        Future<OrderDto> lookup = callers.submit(() -> batcher.fetch(1));
+
+        // Assert
+        assertThatThrownBy(() -> lookup.get(3, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(ResourceAccessException.class);
+        verify(gateway, never()).fetchOrder(any());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.selimhorri.app.client;
+
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParallelOrderLookupTest {
+
+    @Test
+    @DisplayName("fetchAll_WhenPoolRejectsLookup_LeavesItUnresolvedInsteadOfRunningItInline")
+    void fetchAll_WhenPoolRejectsLookup_LeavesItUnresolvedInsteadOfRunningItInline() {
+        // Arrange
+        AtomicInteger submitted = new AtomicInteger();
+        Executor saturatedAfterFirst = runnable -> {
+            if (submitted.incrementAndGet() > 1) {
+                throw new RejectedExecutionException("Lookup pool saturated");
+            }
+            new Thread(runnable).start();
+        };
+        ParallelOrderLookup parallelOrderLookup =
+                new ParallelOrderLookup(saturatedAfterFirst, new OrderClientProperties());
+        List<Thread> lookupThreads = new CopyOnWriteArrayList<>();
+
+        // Act
+        List<OrderDto> orders = parallelOrderLookup.fetchAll(List.of(1, 2, 3), orderId -> {
+            lookupThreads.add(Thread.currentThread());
+            return OrderDto.builder().orderId(orderId).build();
+        });
+
+        // Assert
+        assertThat(orders).hasSize(3);
+        assertThat(orders.get(0).getOrderId()).isEqualTo(1);
+        assertThat(orders.subList(1, 3)).containsOnlyNulls();
+        assertThat(lookupThreads).hasSize(1).doesNotContain(Thread.currentThread());
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.selimhorri.app.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    /**
+     * Starts CALLERS concurrent calls for the same key; the loader blocks until all of them are waiting.
+     */
+    private List<Future<String>> callConcurrently(AtomicInteger invocations, RuntimeException failure)
+            throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+
+        results.add(callers.submit(() -> singleFlight.execute(1, key -> {
+            invocations.incrementAndGet();
+            loaderStarted.countDown();
+            await(release);
+            if (failure != null) {
+                throw failure;
+            }
+            return "order-" + key;
+        })));
+        assertThat(loaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(callers.submit(() -> singleFlight.execute(1, key -> {
+                invocations.incrementAndGet();
+                return "unexpected";
+            })));
+        }
+        // give the followers time to join the in-flight call
+        Thread.sleep(200);
+        release.countDown();
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("execute_WhenCalledConcurrentlyForSameKey_RunsLoaderOnce")
+    void execute_WhenCalledConcurrentlyForSameKey_RunsLoaderOnce() throws Exception {
+        // Arrange
+        AtomicInteger invocations = new AtomicInteger();
+
+        // Act
+        List<Future<String>> results = callConcurrently(invocations, null);
+
+        // Assert
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("order-1");
+        }
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("execute_WhenLoaderThrowsNotFound_PropagatesSameExceptionToEveryCaller")
+    void execute_WhenLoaderThrowsNotFound_PropagatesSameExceptionToEveryCaller() throws Exception {
+        // Arrange
+        AtomicInteger invocations = new AtomicInteger();
+        HttpClientErrorException notFound = HttpClientErrorException.create(
+                HttpStatus.NOT_FOUND, "Not Found", null, null, null);
+
+        // Act
+        List<Future<String>> results = callConcurrently(invocations, notFound);
+
+        // Assert
+        for (Future<String> result : results) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(HttpClientErrorException.NotFound.class);
+        }
+        assertThat(invocations).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("execute_WhenPreviousCallFailed_RunsLoaderAgain")
+    void execute_WhenPreviousCallFailed_RunsLoaderAgain() {
+        // Arrange
+        AtomicInteger invocations = new AtomicInteger();
+        assertThatThrownBy(() -> singleFlight.execute(2, key -> {
+            invocations.incrementAndGet();
+            throw new RestClientException("unavailable");
+        })).isInstanceOf(RestClientException.class);
+
+        // Act
+        String result = singleFlight.execute(2, key -> {
+            invocations.incrementAndGet();
+            return "order-" + key;
+        });
+
+        // Assert
+        assertThat(result).isEqualTo("order-2");
+        assertThat(invocations).hasValue(2);
+    }
+}
@@ -0,0 +1,425 @@
+package com.selimhorri.app.client.impl;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.selimhorri.app.client.MissingOrderCache;
+import com.selimhorri.app.client.OrderLookupBatcher;
+import com.selimhorri.app.client.OrderServiceGateway;
+import com.selimhorri.app.client.OrderSnapshotCache;
+import com.selimhorri.app.client.ParallelOrderLookup;
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.dto.OrderDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for OrderServiceClientImpl against a local stand-in Order Service (WireMock).
+ */
+class OrderServiceClientImplTest {
+
+    private static final String ORDERS_PATH = "/order-service/api/orders";
+
+    private WireMockServer orderService;
+    private OrderClientProperties properties;
+    private ParallelOrderLookup parallelOrderLookup;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderLookupBatcher orderLookupBatcher;
+    private OrderSnapshotCache orderSnapshotCache;
+    private OrderServiceClientImpl client;
+
+    @BeforeEach
+    void setUp() {
+        orderService = new WireMockServer(options().dynamicPort());
+        orderService.start();
+
+        properties = new OrderClientProperties();
+        properties.setBaseUrl(orderService.baseUrl() + ORDERS_PATH);
+        parallelOrderLookup = new ParallelOrderLookup(properties);
+        meterRegistry = new SimpleMeterRegistry();
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(
+                HttpClients.custom().setMaxConnPerRoute(10).build()));
+        OrderServiceGateway gateway = new OrderServiceGateway(restTemplate, properties);
+        orderLookupBatcher = new OrderLookupBatcher(properties, gateway, meterRegistry);
+        orderSnapshotCache = new OrderSnapshotCache(properties, meterRegistry);
+        client = new OrderServiceClientImpl(properties, gateway, parallelOrderLookup,
+                orderSnapshotCache, orderLookupBatcher, new MissingOrderCache(properties, meterRegistry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderLookupBatcher.shutdown();
+        orderSnapshotCache.shutdown();
+        parallelOrderLookup.shutdown();
+        orderService.stop();
+    }
+
+    private static String orderJson(int orderId) {
+        return "{\"orderId\":" + orderId + ",\"orderStatus\":\"IN_PAYMENT\"}";
+    }
+
+    private void awaitRequests(int count, String path) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (orderService.findAll(getRequestedFor(urlPathEqualTo(path))).size() < count
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    @DisplayName("fetchOrdersByIds_WhenIdsExceedChunkSize_SendsOneRequestPerChunk")
+    void fetchOrdersByIds_WhenIdsExceedChunkSize_SendsOneRequestPerChunk() {
+        // Arrange
+        properties.getBatch().setChunkSize(2);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .withQueryParam("ids", equalTo("1,2"))
+                .willReturn(okJson("[" + orderJson(1) + "," + orderJson(2) + "]")));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .withQueryParam("ids", equalTo("3"))
+                .willReturn(okJson("[" + orderJson(3) + "]")));
+
+        // Act
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(1, 2, 2, 3, 1));
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(1, 2, 3);
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+        orderService.verify(0, getRequestedFor(urlPathMatching(ORDERS_PATH + "/\\d+")));
+    }
+
+    @Test
+    @DisplayName("fetchOrdersByIds_WhenBatchEndpointUnavailable_FallsBackToSingleLookups")
+    void fetchOrdersByIds_WhenBatchEndpointUnavailable_FallsBackToSingleLookups() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .willReturn(serverError()));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/1"))
+                .willReturn(okJson(orderJson(1))));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/2"))
+                .willReturn(notFound()));
+
+        // Act
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(1, 2));
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(1);
+        assertThat(orders.get(1).getOrderStatus()).isEqualTo("IN_PAYMENT");
+        orderService.verify(1, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/1")));
+        orderService.verify(1, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/2")));
+    }
+
+    @Test
+    @DisplayName("fetchOrdersByIds_WhenBatchDisabled_UsesSingleLookups")
+    void fetchOrdersByIds_WhenBatchDisabled_UsesSingleLookups() {
+        // Arrange
+        properties.getBatch().setEnabled(false);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/7"))
+                .willReturn(okJson(orderJson(7))));
+
+        // Act
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(7));
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(7);
+        orderService.verify(0, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+    }
+
+    @Test
+    @DisplayName("fetchOrdersByIds_WhenSingleLookupsAreSlow_RunsThemConcurrently")
+    void fetchOrdersByIds_WhenSingleLookupsAreSlow_RunsThemConcurrently() {
+        // Arrange
+        properties.getBatch().setEnabled(false);
+        properties.getParallel().setMaxConcurrency(4);
+        for (int orderId = 1; orderId <= 4; orderId++) {
+            orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/" + orderId))
+                    .willReturn(okJson(orderJson(orderId)).withFixedDelay(400)));
+        }
+
+        // Act
+        long start = System.nanoTime();
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(4, 3, 2, 1));
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(1, 2, 3, 4);
+        assertThat(elapsedMillis).isLessThan(1200);
+    }
+
+    @Test
+    @DisplayName("fetchOrdersByIds_WhenDeadlinePasses_ReturnsOnlyCompletedLookups")
+    void fetchOrdersByIds_WhenDeadlinePasses_ReturnsOnlyCompletedLookups() {
+        // Arrange
+        properties.getBatch().setEnabled(false);
+        properties.getParallel().setDeadline(Duration.ofMillis(300));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/1"))
+                .willReturn(okJson(orderJson(1))));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/2"))
+                .willReturn(okJson(orderJson(2)).withFixedDelay(2000)));
+
+        // Act
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(1, 2));
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(1);
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenCalledRepeatedly_ServesFromCacheAndRecordsHits")
+    void fetchOrderById_WhenCalledRepeatedly_ServesFromCacheAndRecordsHits() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/5"))
+                .willReturn(okJson(orderJson(5))));
+
+        // Act
+        client.fetchOrderById(5);
+        client.fetchOrderById(5);
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(5));
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(5);
+        orderService.verify(1, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/5")));
+        orderService.verify(0, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "order-snapshots").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("updateOrderStatus_WhenOrderCached_InvalidatesSnapshot")
+    void updateOrderStatus_WhenOrderCached_InvalidatesSnapshot() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/6"))
+                .willReturn(okJson(orderJson(6))));
+        orderService.stubFor(patch(urlPathEqualTo(ORDERS_PATH + "/6/status"))
+                .willReturn(ok()));
+        client.fetchOrderById(6);
+
+        // Act
+        client.updateOrderStatus(6);
+        client.fetchOrderById(6);
+
+        // Assert
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/6")));
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenCalledConcurrentlyUnderLoad_SendsOneMicroBatch")
+    void fetchOrderById_WhenCalledConcurrentlyUnderLoad_SendsOneMicroBatch() throws Exception {
+        // Arrange
+        properties.getMicroBatch().setMinConcurrency(1);
+        properties.getMicroBatch().setMaxBatchSize(4);
+        properties.getMicroBatch().setWindow(Duration.ofSeconds(10));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .willReturn(okJson("[" + orderJson(1) + "," + orderJson(2) + ","
+                        + orderJson(3) + "," + orderJson(4) + "]")));
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            // Act
+            List<Future<OrderDto>> results = new ArrayList<>();
+            for (int orderId = 1; orderId <= 4; orderId++) {
+                int id = orderId;
+                results.add(callers.submit(() -> client.fetchOrderById(id)));
+            }
+
+            // Assert
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get(5, TimeUnit.SECONDS).getOrderId()).isEqualTo(i + 1);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        orderService.verify(1, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+        orderService.verify(0, getRequestedFor(urlPathMatching(ORDERS_PATH + "/\\d+")));
+        assertThat(meterRegistry.get("order.client.batch.size").summary().max()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenOrderMissingFromMicroBatch_ThrowsNotFound")
+    void fetchOrderById_WhenOrderMissingFromMicroBatch_ThrowsNotFound() {
+        // Arrange
+        properties.getMicroBatch().setMinConcurrency(1);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .willReturn(okJson("[]")));
+
+        // Act + Assert
+        assertThatThrownBy(() -> client.fetchOrderById(8))
+                .isInstanceOf(HttpClientErrorException.NotFound.class);
+        orderService.verify(0, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/8")));
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenSnapshotPastRefreshAfter_ServesStaleAndRefreshesInBackground")
+    void fetchOrderById_WhenSnapshotPastRefreshAfter_ServesStaleAndRefreshesInBackground() throws Exception {
+        // Arrange
+        properties.getCache().setRefreshAfter(Duration.ZERO);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/9"))
+                .willReturn(okJson(orderJson(9))));
+        OrderDto fresh = client.fetchOrderById(9);
+
+        // Act
+        OrderDto stale = client.fetchOrderById(9);
+        awaitRequests(2, ORDERS_PATH + "/9");
+
+        // Assert
+        assertThat(fresh.getStale()).isNull();
+        assertThat(stale.getOrderId()).isEqualTo(9);
+        assertThat(stale.getStale()).isTrue();
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/9")));
+        assertThat(meterRegistry.get("order.client.cache.stale.served").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("fetchCurrentOrderById_WhenCachedOrderHasChangedStatus_ReturnsCurrentStatus")
+    void fetchCurrentOrderById_WhenCachedOrderHasChangedStatus_ReturnsCurrentStatus() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/15"))
+                .willReturn(okJson("{\"orderId\":15,\"orderStatus\":\"ORDERED\"}")));
+        client.fetchOrderById(15);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/15"))
+                .willReturn(okJson("{\"orderId\":15,\"orderStatus\":\"CANCELED\"}")));
+
+        // Act
+        OrderDto cached = client.fetchOrderById(15);
+        OrderDto current = client.fetchCurrentOrderById(15);
+
+        // Assert
+        assertThat(cached.getOrderStatus()).isEqualTo("ORDERED");
+        assertThat(current.getOrderStatus()).isEqualTo("CANCELED");
+        assertThat(client.fetchOrderById(15).getOrderStatus()).isEqualTo("CANCELED");
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/15")));
+    }
+
+    @Test
+    @DisplayName("fetchCurrentOrdersByIds_WhenOrdersAreCached_FetchesThemAgain")
+    void fetchCurrentOrdersByIds_WhenOrdersAreCached_FetchesThemAgain() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .willReturn(okJson("[{\"orderId\":16,\"orderStatus\":\"ORDERED\"}]")));
+        client.fetchOrdersByIds(List.of(16));
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .willReturn(okJson("[{\"orderId\":16,\"orderStatus\":\"PAID\"}]")));
+
+        // Act
+        Map<Integer, OrderDto> orders = client.fetchCurrentOrdersByIds(List.of(16));
+
+        // Assert
+        assertThat(orders.get(16).getOrderStatus()).isEqualTo("PAID");
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenBackgroundRefreshFails_KeepsServingStaleSnapshot")
+    void fetchOrderById_WhenBackgroundRefreshFails_KeepsServingStaleSnapshot() throws Exception {
+        // Arrange
+        properties.getCache().setRefreshAfter(Duration.ZERO);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/10"))
+                .willReturn(okJson(orderJson(10))));
+        client.fetchOrderById(10);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/10"))
+                .willReturn(serverError()));
+
+        // Act
+        client.fetchOrderById(10);
+        awaitRequests(2, ORDERS_PATH + "/10");
+        Thread.sleep(100);
+        OrderDto afterFailure = client.fetchOrderById(10);
+
+        // Assert
+        assertThat(afterFailure.getOrderId()).isEqualTo(10);
+        assertThat(afterFailure.getStale()).isTrue();
+        assertThat(meterRegistry.get("order.client.cache.refresh.failures").counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenStaleWhileRevalidateDisabled_ReloadsSynchronously")
+    void fetchOrderById_WhenStaleWhileRevalidateDisabled_ReloadsSynchronously() {
+        // Arrange
+        properties.getCache().setRefreshAfter(Duration.ZERO);
+        properties.getCache().setStaleWhileRevalidate(false);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/11"))
+                .willReturn(okJson(orderJson(11))));
+        client.fetchOrderById(11);
+
+        // Act
+        OrderDto reloaded = client.fetchOrderById(11);
+
+        // Assert
+        assertThat(reloaded.getStale()).isNull();
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/11")));
+    }
+
+    @Test
+    @DisplayName("fetchOrderById_WhenOrderNotFound_RemembersMissForLaterLookups")
+    void fetchOrderById_WhenOrderNotFound_RemembersMissForLaterLookups() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/12"))
+                .willReturn(notFound()));
+
+        // Act + Assert
+        assertThatThrownBy(() -> client.fetchOrderById(12))
+                .isInstanceOf(HttpClientErrorException.NotFound.class);
+        assertThatThrownBy(() -> client.fetchOrderById(12))
+                .isInstanceOf(HttpClientErrorException.NotFound.class);
+        assertThat(client.fetchOrdersByIds(List.of(12))).isEmpty();
+        orderService.verify(1, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/12")));
+        orderService.verify(0, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+        assertThat(meterRegistry.get("order.client.cache.negative.hits").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("fetchOrdersByIds_WhenBatchOmitsOrder_SkipsItOnNextListing")
+    void fetchOrdersByIds_WhenBatchOmitsOrder_SkipsItOnNextListing() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/batch"))
+                .withQueryParam("ids", equalTo("1,13"))
+                .willReturn(okJson("[" + orderJson(1) + "]")));
+
+        // Act
+        client.fetchOrdersByIds(List.of(1, 13));
+        Map<Integer, OrderDto> orders = client.fetchOrdersByIds(List.of(1, 13));
+
+        // Assert
+        assertThat(orders).containsOnlyKeys(1);
+        orderService.verify(1, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/batch")));
+        orderService.verify(0, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/13")));
+    }
+
+    @Test
+    @DisplayName("forgetMissingOrder_WhenOrderWasMissing_LooksItUpAgain")
+    void forgetMissingOrder_WhenOrderWasMissing_LooksItUpAgain() {
+        // Arrange
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/14"))
+                .willReturn(notFound()));
+        assertThatThrownBy(() -> client.fetchOrderById(14))
+                .isInstanceOf(HttpClientErrorException.NotFound.class);
+        orderService.stubFor(get(urlPathEqualTo(ORDERS_PATH + "/14"))
+                .willReturn(okJson(orderJson(14))));
+
+        // Act
+        client.forgetMissingOrder(14);
+        OrderDto orderDto = client.fetchOrderById(14);
+
+        // Assert
+        assertThat(orderDto.getOrderId()).isEqualTo(14);
+        orderService.verify(2, getRequestedFor(urlPathEqualTo(ORDERS_PATH + "/14")));
+    }
+}
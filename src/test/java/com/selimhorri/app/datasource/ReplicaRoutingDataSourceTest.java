@@ -0,0 +1,107 @@
+package com.selimhorri.app.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primaryDataSource;
+
+    @Mock
+    private DataSource replicaDataSource;
+
+    @Mock
+    private ReplicaLagMonitor lagMonitor;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, lagMonitor, meterRegistry);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    private double routed(String pool) {
+        return meterRegistry.get("ecommerce.payments.datasource.routed.total").tag("pool", pool).counter().count();
+    }
+
+    @Test
+    @DisplayName("getConnection_WhenTransactionIsReadWrite_UsesPrimary")
+    void getConnection_WhenTransactionIsReadWrite_UsesPrimary() throws SQLException {
+        // Arrange
+        when(primaryDataSource.getConnection()).thenReturn(primaryConnection);
+
+        // Act
+        Connection connection = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(connection).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaDataSource, lagMonitor);
+        assertThat(routed(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("getConnection_WhenTransactionIsReadOnlyAndReplicaKeepsUp_UsesReplica")
+    void getConnection_WhenTransactionIsReadOnlyAndReplicaKeepsUp_UsesReplica() throws SQLException {
+        // Arrange
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(lagMonitor.isReplicaUsable()).thenReturn(true);
+        when(replicaDataSource.getConnection()).thenReturn(replicaConnection);
+
+        // Act
+        Connection connection = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(connection).isSameAs(replicaConnection);
+        verifyNoInteractions(primaryDataSource);
+        assertThat(routed(ReplicaRoutingDataSource.REPLICA)).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("getConnection_WhenTransactionIsReadOnlyAndReplicaLags_FallsBackToPrimary")
+    void getConnection_WhenTransactionIsReadOnlyAndReplicaLags_FallsBackToPrimary() throws SQLException {
+        // Arrange
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(lagMonitor.isReplicaUsable()).thenReturn(false);
+        when(primaryDataSource.getConnection()).thenReturn(primaryConnection);
+
+        // Act
+        Connection connection = routingDataSource.getConnection();
+
+        // Assert
+        assertThat(connection).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaDataSource);
+        assertThat(meterRegistry.get("ecommerce.payments.datasource.replica.fallbacks.total").counter().count())
+                .isEqualTo(1.0);
+    }
+
+}
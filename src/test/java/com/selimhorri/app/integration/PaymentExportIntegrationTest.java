@@ -0,0 +1,118 @@
+package com.selimhorri.app.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.selimhorri.app.constant.AppConstant;
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.dto.OrderDto;
+import com.selimhorri.app.repository.PaymentRepository;
+import com.selimhorri.app.service.PaymentExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Integration tests for the NDJSON payment export against the H2 test database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PaymentExportIntegrationTest {
+
+    @Autowired
+    private PaymentExportService paymentExportService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    private static final String ORDER_API = AppConstant.DiscoveredDomainsApi.ORDER_SERVICE_API_URL;
+
+    @BeforeEach
+    void setup() {
+        reset(restTemplate);
+        paymentRepository.deleteAll();
+    }
+
+    private void savePayment(Integer orderId, PaymentStatus status) {
+        paymentRepository.save(Payment.builder()
+                .orderId(orderId)
+                .paymentStatus(status)
+                .isPayed(status == PaymentStatus.COMPLETED)
+                .build());
+    }
+
+    private List<JsonNode> records(ByteArrayOutputStream output) throws Exception {
+        List<JsonNode> records = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            records.add(objectMapper.readTree(line));
+        }
+        return records;
+    }
+
+    @Test
+    @DisplayName("exportNdjson_WhenOrderNotExpanded_WritesOneLinePerPaymentWithoutRemoteCalls")
+    void exportNdjson_WhenOrderNotExpanded_WritesOneLinePerPaymentWithoutRemoteCalls() throws Exception {
+        // Arrange
+        savePayment(7000, PaymentStatus.NOT_STARTED);
+        savePayment(7001, PaymentStatus.COMPLETED);
+        savePayment(7002, PaymentStatus.IN_PROGRESS);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        paymentExportService.exportNdjson(output, false);
+
+        // Assert
+        List<JsonNode> records = records(output);
+        assertThat(records).hasSize(3);
+        assertThat(records).extracting(record -> record.path("order").path("orderId").asInt())
+                .containsExactly(7000, 7001, 7002);
+        assertThat(records.get(0).path("order").fieldNames()).toIterable().containsExactly("orderId");
+        assertThat(records.get(1).path("paymentStatus").asText()).isEqualTo("COMPLETED");
+        assertThat(records.get(1).path("isPayed").asBoolean()).isTrue();
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("exportNdjson_WhenOrderExpanded_ResolvesOrdersPerChunk")
+    void exportNdjson_WhenOrderExpanded_ResolvesOrdersPerChunk() throws Exception {
+        // Arrange
+        savePayment(7100, PaymentStatus.NOT_STARTED);
+        savePayment(7101, PaymentStatus.IN_PROGRESS);
+        when(restTemplate.getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class)))
+                .thenReturn(new OrderDto[] {
+                        OrderDto.builder().orderId(7100).orderStatus("IN_PAYMENT").build(),
+                        OrderDto.builder().orderId(7101).orderStatus("IN_PAYMENT").build() });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Act
+        paymentExportService.exportNdjson(output, true);
+
+        // Assert
+        List<JsonNode> records = records(output);
+        assertThat(records).extracting(record -> record.path("order").path("orderStatus").asText())
+                .containsExactly("IN_PAYMENT", "IN_PAYMENT");
+        // A resolved order keeps its unset fields as nulls
+        assertThat(records.get(0).path("order").has("orderDesc")).isTrue();
+        verify(restTemplate, times(1)).getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class));
+    }
+}
@@ -0,0 +1,74 @@
+package com.selimhorri.app.integration;
+
+import com.selimhorri.app.repository.PaymentIdSequence;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for id reservation on payment_id_sequence against the H2 test database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PaymentIdSequenceIntegrationTest {
+
+    private static final int BLOCK = 50;
+    private static final int ROUNDS = 25;
+
+    @Autowired
+    private PaymentIdSequence paymentIdSequence;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    @Test
+    @DisplayName("allocate_WhenCalledConcurrently_ReservesDisjointRanges")
+    void allocate_WhenCalledConcurrently_ReservesDisjointRanges() throws Exception {
+        // Arrange
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<List<Integer>> allocator = () -> {
+            start.await();
+            List<Integer> firstIds = new ArrayList<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                firstIds.add(paymentIdSequence.allocate(BLOCK));
+            }
+            return firstIds;
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        List<Integer> firstIds = new ArrayList<>();
+        try {
+            Future<List<Integer>> first = executor.submit(allocator);
+            Future<List<Integer>> second = executor.submit(allocator);
+            start.countDown();
+            firstIds.addAll(first.get(30, TimeUnit.SECONDS));
+            firstIds.addAll(second.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        firstIds.sort(null);
+        assertThat(firstIds).hasSize(2 * ROUNDS).doesNotHaveDuplicates();
+        for (int i = 1; i < firstIds.size(); i++) {
+            assertThat(firstIds.get(i) - firstIds.get(i - 1)).isGreaterThanOrEqualTo(BLOCK);
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.selimhorri.app.integration;
+
+import com.selimhorri.app.constant.AppConstant;
+import com.selimhorri.app.domain.IdempotencyRecord;
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.IdempotencyStatus;
+import com.selimhorri.app.dto.OrderDto;
+import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.dto.response.IdempotentResponse;
+import com.selimhorri.app.exception.custom.DuplicateResourceException;
+import com.selimhorri.app.exception.custom.ExternalServiceException;
+import com.selimhorri.app.exception.custom.InvalidInputException;
+import com.selimhorri.app.repository.IdempotencyRecordRepository;
+import com.selimhorri.app.repository.OrderStatusOutboxRepository;
+import com.selimhorri.app.repository.PaymentRepository;
+import com.selimhorri.app.service.IdempotencyService;
+import com.selimhorri.app.service.PaymentService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Integration tests for payment creation with an Idempotency-Key, against the H2 key store.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PaymentIdempotencyIntegrationTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderStatusOutboxRepository outboxRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RestTemplate restTemplate;
+
+    private static final String ORDER_API = AppConstant.DiscoveredDomainsApi.ORDER_SERVICE_API_URL;
+
+    @BeforeEach
+    void setup() {
+        reset(restTemplate);
+        paymentRepository.deleteAll();
+        outboxRepository.deleteAll();
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("execute_WhenKeyIsRetried_ReplaysStoredResponseWithoutSavingAgain")
+    void execute_WhenKeyIsRetried_ReplaysStoredResponseWithoutSavingAgain() {
+        // Arrange
+        Integer orderId = 7100;
+        stubOrder(orderId, "ORDERED");
+        PaymentDto paymentDto = newPayment(orderId);
+        String key = UUID.randomUUID().toString();
+
+        // Act
+        IdempotentResponse<PaymentDto> first = save(key, paymentDto);
+        IdempotentResponse<PaymentDto> retry = save(key, newPayment(orderId));
+
+        // Assert
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(retry.isReplayed()).isTrue();
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getBody().getPaymentId()).isEqualTo(first.getBody().getPaymentId());
+        assertThat(paymentRepository.count()).isEqualTo(1);
+        assertThat(outboxRepository.count()).isEqualTo(1);
+        verify(restTemplate, times(1)).getForObject(eq(ORDER_API + "/" + orderId), eq(OrderDto.class));
+        assertThat(idempotencyRecordRepository.findById(key))
+                .get()
+                .extracting(IdempotencyRecord::getStatus)
+                .isEqualTo(IdempotencyStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("execute_WhenOrderDescriptionIsLong_StoresAndReplaysWholeResponse")
+    void execute_WhenOrderDescriptionIsLong_StoresAndReplaysWholeResponse() {
+        // Arrange
+        Integer orderId = 7150;
+        String orderDesc = "x".repeat(10_000);
+        when(restTemplate.getForObject(eq(ORDER_API + "/" + orderId), eq(OrderDto.class)))
+                .thenReturn(OrderDto.builder()
+                        .orderId(orderId)
+                        .orderStatus("ORDERED")
+                        .orderDesc(orderDesc)
+                        .orderFee(99.99)
+                        .build());
+        String key = UUID.randomUUID().toString();
+
+        // Act
+        IdempotentResponse<PaymentDto> first = save(key, newPayment(orderId));
+        IdempotentResponse<PaymentDto> retry = save(key, newPayment(orderId));
+
+        // Assert
+        assertThat(first.isReplayed()).isFalse();
+        assertThat(paymentRepository.count()).isEqualTo(1);
+        assertThat(retry.isReplayed()).isTrue();
+        assertThat(retry.getBody().getPaymentId()).isEqualTo(first.getBody().getPaymentId());
+        assertThat(retry.getBody().getOrderDto().getOrderDesc()).isEqualTo(orderDesc);
+    }
+
+    @Test
+    @DisplayName("execute_WhenKeyIsReusedForDifferentRequest_ThrowsInvalidInputException")
+    void execute_WhenKeyIsReusedForDifferentRequest_ThrowsInvalidInputException() {
+        // Arrange
+        Integer orderId = 7200;
+        stubOrder(orderId, "ORDERED");
+        String key = UUID.randomUUID().toString();
+        save(key, newPayment(orderId));
+
+        // Act & Assert
+        assertThatThrownBy(() -> save(key, newPayment(orderId + 1)))
+                .isInstanceOf(InvalidInputException.class)
+                .hasMessageContaining(key);
+        assertThat(paymentRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("execute_WhenSaveFails_ReleasesKeyForRetry")
+    void execute_WhenSaveFails_ReleasesKeyForRetry() {
+        // Arrange
+        Integer orderId = 7300;
+        when(restTemplate.getForObject(eq(ORDER_API + "/" + orderId), eq(OrderDto.class)))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenReturn(OrderDto.builder().orderId(orderId).orderStatus("ORDERED").orderFee(99.99).build());
+        String key = UUID.randomUUID().toString();
+
+        // Act
+        assertThatThrownBy(() -> save(key, newPayment(orderId)))
+                .isInstanceOf(ExternalServiceException.class);
+
+        // Assert
+        assertThat(idempotencyRecordRepository.existsById(key)).isFalse();
+        assertThat(paymentRepository.count()).isZero();
+
+        // Act - the same key goes through once ORDER-SERVICE is back
+        IdempotentResponse<PaymentDto> retry = save(key, newPayment(orderId));
+
+        // Assert
+        assertThat(retry.isReplayed()).isFalse();
+        assertThat(paymentRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("execute_WhenKeyIsStillInProgress_ThrowsDuplicateResourceException")
+    void execute_WhenKeyIsStillInProgress_ThrowsDuplicateResourceException() {
+        // Arrange
+        Integer orderId = 7400;
+        String key = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> idempotencyRecordRepository
+                .reserve(key, "in-flight", now.plus(1, ChronoUnit.HOURS), now));
+
+        // Act & Assert
+        assertThatThrownBy(() -> save(key, newPayment(orderId)))
+                .isInstanceOf(DuplicateResourceException.class);
+        verify(restTemplate, never()).getForObject(anyString(), eq(OrderDto.class));
+        assertThat(paymentRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("purgeExpired_WhenKeyHasExpired_DeletesIt")
+    void purgeExpired_WhenKeyHasExpired_DeletesIt() {
+        // Arrange
+        String key = UUID.randomUUID().toString();
+        Instant past = Instant.now().minus(2, ChronoUnit.DAYS);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> idempotencyRecordRepository
+                .reserve(key, "expired", past.plus(1, ChronoUnit.DAYS), past));
+
+        // Act
+        int purged = idempotencyService.purgeExpired();
+
+        // Assert
+        assertThat(purged).isEqualTo(1);
+        assertThat(idempotencyRecordRepository.existsById(key)).isFalse();
+    }
+
+    private IdempotentResponse<PaymentDto> save(String key, PaymentDto paymentDto) {
+        return idempotencyService.execute(key, paymentDto, PaymentDto.class, 201,
+                () -> paymentService.save(paymentDto));
+    }
+
+    private void stubOrder(Integer orderId, String orderStatus) {
+        when(restTemplate.getForObject(eq(ORDER_API + "/" + orderId), eq(OrderDto.class)))
+                .thenReturn(OrderDto.builder()
+                        .orderId(orderId)
+                        .orderStatus(orderStatus)
+                        .orderFee(99.99)
+                        .build());
+    }
+
+    private static PaymentDto newPayment(Integer orderId) {
+        return PaymentDto.builder()
+                .orderDto(OrderDto.builder().orderId(orderId).build())
+                .paymentStatus(PaymentStatus.NOT_STARTED)
+                .isPayed(false)
+                .build();
+    }
+
+}
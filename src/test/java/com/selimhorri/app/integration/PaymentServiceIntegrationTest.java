@@ -1,24 +1,48 @@
 package com.selimhorri.app.integration;
 
 import com.selimhorri.app.constant.AppConstant;
+import com.selimhorri.app.domain.ArchivedPayment;
+import com.selimhorri.app.domain.OrderStatusOutbox;
 import com.selimhorri.app.domain.Payment;
 import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
 import com.selimhorri.app.dto.OrderDto;
 import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.dto.PaymentSearchCriteria;
+import com.selimhorri.app.dto.PaymentStatusHistoryDto;
+import com.selimhorri.app.dto.response.BulkOperationResponse;
+import com.selimhorri.app.dto.response.collection.DtoCursorPageResponse;
+import com.selimhorri.app.exception.custom.DuplicateResourceException;
+import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
 import com.selimhorri.app.exception.custom.ResourceNotFoundException;
+import com.selimhorri.app.repository.ArchivedPaymentRepository;
+import com.selimhorri.app.repository.OrderStatusOutboxRepository;
 import com.selimhorri.app.repository.PaymentRepository;
+import com.selimhorri.app.repository.PaymentStatusHistoryRepository;
+import com.selimhorri.app.service.OrderStatusOutboxService;
+import com.selimhorri.app.service.PaymentArchiveService;
 import com.selimhorri.app.service.PaymentService;
+import com.selimhorri.app.service.PaymentStatusHistoryService;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -43,6 +67,27 @@ class PaymentServiceIntegrationTest {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private OrderStatusOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderStatusOutboxService orderStatusOutboxService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PaymentStatusHistoryService paymentStatusHistoryService;
+
+    @Autowired
+    private PaymentStatusHistoryRepository historyRepository;
+
+    @Autowired
+    private PaymentArchiveService paymentArchiveService;
+
+    @Autowired
+    private ArchivedPaymentRepository archivedPaymentRepository;
+
     @MockBean
     private RestTemplate restTemplate;
 
@@ -52,6 +97,9 @@ class PaymentServiceIntegrationTest {
     void setup() {
         reset(restTemplate);
         paymentRepository.deleteAll();
+        outboxRepository.deleteAll();
+        historyRepository.deleteAll();
+        archivedPaymentRepository.deleteAll();
     }
 
     @Test
@@ -91,7 +139,16 @@ class PaymentServiceIntegrationTest {
         assertThat(savedPayment.getOrderDto().getOrderStatus()).isEqualTo("ORDERED");
 
         verify(restTemplate, times(1)).getForObject(eq(ORDER_API + "/" + orderId), eq(OrderDto.class));
+        verify(restTemplate, never()).patchForObject(anyString(), any(), eq(Void.class));
+        assertThat(outboxRepository.findAll()).extracting(OrderStatusOutbox::getOrderId).containsExactly(orderId);
+
+        // Act - the relay delivers the queued status update after the transaction
+        int delivered = orderStatusOutboxService.relayPending();
+
+        // Assert
+        assertThat(delivered).isEqualTo(1);
         verify(restTemplate, times(1)).patchForObject(eq(ORDER_API + "/" + orderId + "/status"), isNull(), eq(Void.class));
+        assertThat(outboxRepository.count()).isZero();
     }
 
     @Test
@@ -241,10 +298,8 @@ class PaymentServiceIntegrationTest {
                 .orderFee(299.99)
                 .build();
 
-        when(restTemplate.getForObject(eq(ORDER_API + "/" + orderId1), eq(OrderDto.class)))
-                .thenReturn(mockOrder1);
-        when(restTemplate.getForObject(eq(ORDER_API + "/" + orderId2), eq(OrderDto.class)))
-                .thenReturn(mockOrder2);
+        when(restTemplate.getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class)))
+                .thenReturn(new OrderDto[] { mockOrder1, mockOrder2 });
 
         // Act
         var payments = paymentService.findAll();
@@ -255,7 +310,372 @@ class PaymentServiceIntegrationTest {
         assertThat(payments).extracting(p -> p.getOrderDto().getOrderFee())
                 .containsExactlyInAnyOrder(199.99, 299.99);
 
-        verify(restTemplate, times(1)).getForObject(eq(ORDER_API + "/" + orderId1), eq(OrderDto.class));
-        verify(restTemplate, times(1)).getForObject(eq(ORDER_API + "/" + orderId2), eq(OrderDto.class));
+        verify(restTemplate, times(1)).getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class));
+        verify(restTemplate, never()).getForObject(anyString(), eq(OrderDto.class));
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("findPage_WhenFollowingCursors_VisitsEveryPaymentOnce")
+    void findPage_WhenFollowingCursors_VisitsEveryPaymentOnce() {
+        // Arrange
+        for (int orderId = 6000; orderId < 6005; orderId++) {
+            paymentRepository.save(Payment.builder()
+                    .orderId(orderId)
+                    .paymentStatus(PaymentStatus.NOT_STARTED)
+                    .isPayed(false)
+                    .build());
+        }
+
+        // Act
+        List<Integer> visited = new ArrayList<>();
+        int pages = 0;
+        String cursor = null;
+        DtoCursorPageResponse<PaymentDto> page;
+        do {
+            page = paymentService.findPage(cursor, 2, false);
+            page.getCollection().forEach(payment -> visited.add(payment.getOrderDto().getOrderId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (page.isHasMore());
+
+        // Assert
+        assertThat(pages).isEqualTo(3);
+        assertThat(visited).containsExactly(6000, 6001, 6002, 6003, 6004);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @Order(8)
+    @DisplayName("search_WhenFilteringByStatusAndWindow_ReturnsOnlyMatchingPayments")
+    void search_WhenFilteringByStatusAndWindow_ReturnsOnlyMatchingPayments() {
+        // Arrange
+        Instant now = Instant.now();
+        Payment old = Payment.builder()
+                .orderId(8000)
+                .paymentStatus(PaymentStatus.IN_PROGRESS)
+                .isPayed(false)
+                .build();
+        old.setCreatedAt(now.minus(2, ChronoUnit.HOURS));
+        paymentRepository.save(old);
+        paymentRepository.save(Payment.builder()
+                .orderId(8001)
+                .paymentStatus(PaymentStatus.IN_PROGRESS)
+                .isPayed(false)
+                .build());
+        paymentRepository.save(Payment.builder()
+                .orderId(8002)
+                .paymentStatus(PaymentStatus.COMPLETED)
+                .isPayed(true)
+                .build());
+
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .paymentStatus(PaymentStatus.IN_PROGRESS)
+                .createdFrom(now.minus(1, ChronoUnit.HOURS))
+                .build();
+
+        // Act
+        DtoCursorPageResponse<PaymentDto> result = paymentService.search(criteria, null, null, false);
+
+        // Assert
+        assertThat(result.getCollection()).extracting(p -> p.getOrderDto().getOrderId()).containsExactly(8001);
+        assertThat(result.isHasMore()).isFalse();
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @Order(9)
+    @DisplayName("search_WhenFilteringByOrderIdAndIsPayed_ReturnsOnlyMatchingPayments")
+    void search_WhenFilteringByOrderIdAndIsPayed_ReturnsOnlyMatchingPayments() {
+        // Arrange
+        paymentRepository.save(Payment.builder()
+                .orderId(8100)
+                .paymentStatus(PaymentStatus.COMPLETED)
+                .isPayed(true)
+                .build());
+        paymentRepository.save(Payment.builder()
+                .orderId(8102)
+                .paymentStatus(PaymentStatus.CANCELED)
+                .isPayed(false)
+                .build());
+        paymentRepository.save(Payment.builder()
+                .orderId(8101)
+                .paymentStatus(PaymentStatus.COMPLETED)
+                .isPayed(true)
+                .build());
+
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .orderId(8100)
+                .isPayed(true)
+                .build();
+
+        // Act
+        DtoCursorPageResponse<PaymentDto> result = paymentService.search(criteria, null, null, false);
+
+        // Assert
+        assertThat(result.getCollection()).extracting(PaymentDto::getPaymentStatus)
+                .containsExactly(PaymentStatus.COMPLETED);
+    }
+
+    @Test
+    @Order(10)
+    @DisplayName("findAllByOrderIds_WhenOrdersHavePayments_ReturnsThemGroupedByRequestedOrder")
+    void findAllByOrderIds_WhenOrdersHavePayments_ReturnsThemGroupedByRequestedOrder() {
+        // Arrange
+        paymentRepository.save(Payment.builder()
+                .orderId(9001)
+                .paymentStatus(PaymentStatus.CANCELED)
+                .isPayed(false)
+                .build());
+        paymentRepository.save(Payment.builder()
+                .orderId(9002)
+                .paymentStatus(PaymentStatus.COMPLETED)
+                .isPayed(true)
+                .build());
+        paymentRepository.save(Payment.builder()
+                .orderId(9003)
+                .paymentStatus(PaymentStatus.NOT_STARTED)
+                .isPayed(false)
+                .build());
+
+        // Act
+        List<PaymentDto> result = paymentService.findAllByOrderIds(List.of(9002, 9001, 9404), false);
+
+        // Assert
+        assertThat(result).extracting(p -> p.getOrderDto().getOrderId()).containsExactly(9002, 9001);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @Order(11)
+    @DisplayName("save_WhenOrderAlreadyHasPayment_ThrowsDuplicateResourceExceptionWithoutCallingOrderService")
+    void save_WhenOrderAlreadyHasPayment_ThrowsDuplicateResourceExceptionWithoutCallingOrderService() {
+        // Arrange
+        Integer orderId = 9500;
+        paymentRepository.save(Payment.builder()
+                .orderId(orderId)
+                .paymentStatus(PaymentStatus.NOT_STARTED)
+                .isPayed(false)
+                .build());
+
+        PaymentDto paymentDto = PaymentDto.builder()
+                .orderDto(OrderDto.builder().orderId(orderId).build())
+                .paymentStatus(PaymentStatus.NOT_STARTED)
+                .isPayed(false)
+                .build();
+
+        // Act & Assert
+        assertThatThrownBy(() -> paymentService.save(paymentDto))
+                .isInstanceOf(DuplicateResourceException.class);
+        verifyNoInteractions(restTemplate);
+        assertThat(paymentRepository.count()).isEqualTo(1);
+        assertThat(outboxRepository.count()).isZero();
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("saveAll_WhenOrdersArePayable_InsertsPaymentsInBatchesAndQueuesStatusUpdates")
+    void saveAll_WhenOrdersArePayable_InsertsPaymentsInBatchesAndQueuesStatusUpdates() {
+        // Arrange
+        when(restTemplate.getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class)))
+                .thenAnswer(invocation -> {
+                    String ids = invocation.<String>getArgument(0).substring((ORDER_API + "/batch?ids=").length());
+                    return Arrays.stream(ids.split(","))
+                            .map(id -> OrderDto.builder().orderId(Integer.valueOf(id)).orderStatus("ORDERED").build())
+                            .toArray(OrderDto[]::new);
+                });
+        List<PaymentDto> request = new ArrayList<>();
+        for (int orderId = 9600; orderId < 9700; orderId++) {
+            request.add(PaymentDto.builder()
+                    .orderDto(OrderDto.builder().orderId(orderId).build())
+                    .build());
+        }
+
+        // Act
+        BulkOperationResponse<PaymentDto> response = paymentService.saveAll(request);
+
+        // Assert
+        assertThat(response.getSucceeded()).isEqualTo(100);
+        assertThat(response.getFailed()).isZero();
+        assertThat(response.getResults())
+                .extracting(result -> result.getItem().getPaymentId())
+                .doesNotContainNull()
+                .doesNotHaveDuplicates();
+        assertThat(paymentRepository.count()).isEqualTo(100);
+        assertThat(paymentRepository.findById(response.getResults().get(42).getItem().getPaymentId()))
+                .get()
+                .extracting(Payment::getOrderId)
+                .isEqualTo(9642);
+        assertThat(outboxRepository.count()).isEqualTo(100);
+        verify(restTemplate, never()).getForObject(anyString(), eq(OrderDto.class));
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("saveAll_WhenMixedWithEntityInserts_DrawsDistinctIdsFromSharedSequence")
+    void saveAll_WhenMixedWithEntityInserts_DrawsDistinctIdsFromSharedSequence() {
+        // Arrange
+        when(restTemplate.getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class)))
+                .thenReturn(new OrderDto[] {
+                        OrderDto.builder().orderId(9801).orderStatus("ORDERED").build(),
+                        OrderDto.builder().orderId(9802).orderStatus("ORDERED").build() });
+        Payment before = paymentRepository.save(Payment.builder()
+                .orderId(9800)
+                .paymentStatus(PaymentStatus.NOT_STARTED)
+                .isPayed(false)
+                .build());
+
+        // Act
+        BulkOperationResponse<PaymentDto> response = paymentService.saveAll(List.of(
+                PaymentDto.builder().orderDto(OrderDto.builder().orderId(9801).build()).build(),
+                PaymentDto.builder().orderDto(OrderDto.builder().orderId(9802).build()).build()));
+        Payment after = paymentRepository.save(Payment.builder()
+                .orderId(9803)
+                .paymentStatus(PaymentStatus.NOT_STARTED)
+                .isPayed(false)
+                .build());
+
+        // Assert
+        List<Integer> ids = new ArrayList<>();
+        ids.add(before.getPaymentId());
+        response.getResults().forEach(result -> ids.add(result.getItem().getPaymentId()));
+        ids.add(after.getPaymentId());
+        assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(paymentRepository.count()).isEqualTo(4);
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("updateStatus_WhenStatusAlreadyMovedOn_ConditionalUpdateMatchesNoRow")
+    void updateStatus_WhenStatusAlreadyMovedOn_ConditionalUpdateMatchesNoRow() {
+        // Arrange
+        Payment payment = paymentRepository.save(Payment.builder()
+                .orderId(9900)
+                .paymentStatus(PaymentStatus.IN_PROGRESS)
+                .isPayed(false)
+                .build());
+
+        // Act
+        PaymentDto updated = paymentService.updateStatus(payment.getPaymentId());
+        Integer stale = new TransactionTemplate(transactionManager).execute(status -> paymentRepository
+                .transitionStatus(payment.getPaymentId(), PaymentStatus.IN_PROGRESS, payment.getVersion(),
+                        PaymentStatus.CANCELED, Instant.now()));
+
+        // Assert
+        assertThat(updated.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(stale).isZero();
+        assertThat(paymentRepository.findById(payment.getPaymentId()))
+                .get()
+                .extracting(Payment::getPaymentStatus, Payment::getVersion)
+                .containsExactly(PaymentStatus.COMPLETED, payment.getVersion() + 1);
+        assertThatThrownBy(() -> paymentService.deleteById(payment.getPaymentId()))
+                .isInstanceOf(InvalidPaymentStatusException.class);
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("updateStatusAll_WhenApplied_MovesEachPaymentOneStepAndBumpsVersions")
+    void updateStatusAll_WhenApplied_MovesEachPaymentOneStepAndBumpsVersions() {
+        // Arrange
+        Payment notStarted = paymentRepository.save(Payment.builder()
+                .orderId(9910).paymentStatus(PaymentStatus.NOT_STARTED).isPayed(false).build());
+        Payment inProgress = paymentRepository.save(Payment.builder()
+                .orderId(9911).paymentStatus(PaymentStatus.IN_PROGRESS).isPayed(false).build());
+        Payment completed = paymentRepository.save(Payment.builder()
+                .orderId(9912).paymentStatus(PaymentStatus.COMPLETED).isPayed(true).build());
+
+        // Act
+        BulkOperationResponse<PaymentDto> advanced = paymentService.updateStatusAll(List.of(
+                notStarted.getPaymentId(), inProgress.getPaymentId(), completed.getPaymentId()));
+        BulkOperationResponse<PaymentDto> canceled = paymentService.deleteAllByIds(List.of(
+                notStarted.getPaymentId(), inProgress.getPaymentId()));
+
+        // Assert
+        assertThat(advanced.getSucceeded()).isEqualTo(2);
+        assertThat(advanced.getFailed()).isEqualTo(1);
+        assertThat(canceled.getSucceeded()).isEqualTo(1);
+        assertThat(canceled.getFailed()).isEqualTo(1);
+        assertThat(paymentRepository.findAllById(List.of(
+                notStarted.getPaymentId(), inProgress.getPaymentId(), completed.getPaymentId())))
+                .extracting(Payment::getPaymentId, Payment::getPaymentStatus, Payment::getVersion)
+                .containsExactlyInAnyOrder(
+                        tuple(notStarted.getPaymentId(), PaymentStatus.CANCELED, notStarted.getVersion() + 2),
+                        tuple(inProgress.getPaymentId(), PaymentStatus.COMPLETED, inProgress.getVersion() + 1),
+                        tuple(completed.getPaymentId(), PaymentStatus.COMPLETED, completed.getVersion()));
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("findHistory_WhenPaymentWentThroughTransitions_ListsThemInOrderWithTimeInStatus")
+    void findHistory_WhenPaymentWentThroughTransitions_ListsThemInOrderWithTimeInStatus() {
+        // Arrange
+        Payment single = paymentRepository.save(Payment.builder()
+                .orderId(9920).paymentStatus(PaymentStatus.NOT_STARTED).isPayed(false).build());
+        Payment bulk = paymentRepository.save(Payment.builder()
+                .orderId(9921).paymentStatus(PaymentStatus.NOT_STARTED).isPayed(false).build());
+
+        // Act
+        paymentService.updateStatus(single.getPaymentId());
+        paymentService.updateStatus(single.getPaymentId());
+        paymentService.deleteAllByIds(List.of(bulk.getPaymentId()));
+        List<PaymentStatusHistoryDto> singleHistory = paymentStatusHistoryService.findByPaymentId(single.getPaymentId());
+        List<PaymentStatusHistoryDto> bulkHistory = paymentStatusHistoryService.findByPaymentId(bulk.getPaymentId());
+
+        // Assert
+        assertThat(singleHistory)
+                .extracting(PaymentStatusHistoryDto::getFromStatus, PaymentStatusHistoryDto::getToStatus,
+                        PaymentStatusHistoryDto::getEvent)
+                .containsExactly(
+                        tuple(PaymentStatus.NOT_STARTED, PaymentStatus.IN_PROGRESS, PaymentEvent.ADVANCE),
+                        tuple(PaymentStatus.IN_PROGRESS, PaymentStatus.COMPLETED, PaymentEvent.ADVANCE));
+        assertThat(singleHistory).allSatisfy(entry -> assertThat(entry.getMillisInFromStatus()).isNotNegative());
+        assertThat(bulkHistory)
+                .extracting(PaymentStatusHistoryDto::getToStatus, PaymentStatusHistoryDto::getEvent)
+                .containsExactly(tuple(PaymentStatus.CANCELED, PaymentEvent.CANCEL));
+        assertThatThrownBy(() -> paymentStatusHistoryService.findByPaymentId(-1))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("archiveFinalPayments_WhenFinalPaymentsAreOld_MovesOnlyThoseAndReadsFallThrough")
+    void archiveFinalPayments_WhenFinalPaymentsAreOld_MovesOnlyThoseAndReadsFallThrough() {
+        // Arrange
+        Instant longAgo = Instant.now().minus(400, ChronoUnit.DAYS);
+        Payment oldCompleted = savePayment(9930, PaymentStatus.COMPLETED, longAgo);
+        Payment oldCanceled = savePayment(9931, PaymentStatus.CANCELED, longAgo);
+        Payment oldInProgress = savePayment(9932, PaymentStatus.IN_PROGRESS, longAgo);
+        Payment recentCompleted = savePayment(9933, PaymentStatus.COMPLETED, Instant.now());
+
+        // Act
+        int archived = paymentArchiveService.archiveFinalPayments();
+
+        // Assert
+        assertThat(archived).isEqualTo(2);
+        assertThat(paymentRepository.findAll())
+                .extracting(Payment::getPaymentId)
+                .containsExactlyInAnyOrder(oldInProgress.getPaymentId(), recentCompleted.getPaymentId());
+        assertThat(archivedPaymentRepository.findAll())
+                .extracting(ArchivedPayment::getPaymentId)
+                .containsExactlyInAnyOrder(oldCompleted.getPaymentId(), oldCanceled.getPaymentId());
+        assertThat(paymentService.findById(oldCompleted.getPaymentId(), false).getPaymentStatus())
+                .isEqualTo(PaymentStatus.COMPLETED);
+        assertThatThrownBy(() -> paymentService.deleteById(oldCompleted.getPaymentId()))
+                .isInstanceOf(InvalidPaymentStatusException.class);
+        assertThatThrownBy(() -> paymentService.save(PaymentDto.builder()
+                .orderDto(OrderDto.builder().orderId(9930).build())
+                .build()))
+                .isInstanceOf(DuplicateResourceException.class);
+        assertThat(paymentArchiveService.archiveFinalPayments()).isZero();
+    }
+
+    private Payment savePayment(Integer orderId, PaymentStatus status, Instant createdAt) {
+        Payment payment = Payment.builder()
+                .orderId(orderId)
+                .paymentStatus(status)
+                .isPayed(status == PaymentStatus.COMPLETED)
+                .build();
+        payment.setCreatedAt(createdAt);
+        return paymentRepository.save(payment);
     }
 }
@@ -0,0 +1,108 @@
+package com.selimhorri.app.retry;
+
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
+import com.selimhorri.app.exception.custom.PaymentConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConflictRetryAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private FlakyUpdater updater;
+    private FlakyUpdater proxy;
+
+    @BeforeEach
+    void setUp() {
+        PaymentProperties paymentProperties = new PaymentProperties();
+        paymentProperties.getRetry().setMaxAttempts(3);
+        paymentProperties.getRetry().setInitialBackoff(Duration.ofMillis(1));
+        paymentProperties.getRetry().setMaxBackoff(Duration.ofMillis(2));
+        meterRegistry = new SimpleMeterRegistry();
+
+        updater = new FlakyUpdater();
+        AspectJProxyFactory factory = new AspectJProxyFactory(updater);
+        factory.addAspect(new ConflictRetryAspect(paymentProperties, meterRegistry));
+        proxy = factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("retry_WhenConflictIsTransient_RerunsMethodUntilItSucceeds")
+    void retry_WhenConflictIsTransient_RerunsMethodUntilItSucceeds() {
+        // Arrange
+        updater.failures.add(new PaymentConflictException(ErrorCode.PAYMENT_CONCURRENTLY_MODIFIED, 1));
+        updater.failures.add(new ObjectOptimisticLockingFailureException("Payment", 1));
+
+        // Act
+        String result = proxy.update();
+
+        // Assert
+        assertThat(result).isEqualTo("updated");
+        assertThat(updater.calls).isEqualTo(3);
+        assertThat(count("ecommerce.payments.conflict.retries.total")).isEqualTo(2);
+        assertThat(count("ecommerce.payments.conflict.exhausted.total")).isZero();
+    }
+
+    @Test
+    @DisplayName("retry_WhenConflictPersists_GivesUpAfterMaxAttempts")
+    void retry_WhenConflictPersists_GivesUpAfterMaxAttempts() {
+        // Arrange
+        for (int i = 0; i < 5; i++) {
+            updater.failures.add(new PaymentConflictException(ErrorCode.PAYMENT_CONCURRENTLY_MODIFIED, 1));
+        }
+
+        // Act + Assert
+        assertThatThrownBy(() -> proxy.update())
+                .isInstanceOf(PaymentConflictException.class);
+        assertThat(updater.calls).isEqualTo(3);
+        assertThat(count("ecommerce.payments.conflict.retries.total")).isEqualTo(2);
+        assertThat(count("ecommerce.payments.conflict.exhausted.total")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("retry_WhenFailureIsNotAConflict_DoesNotRetry")
+    void retry_WhenFailureIsNotAConflict_DoesNotRetry() {
+        // Arrange
+        updater.failures.add(new InvalidPaymentStatusException(ErrorCode.PAYMENT_ALREADY_COMPLETED));
+
+        // Act + Assert
+        assertThatThrownBy(() -> proxy.update())
+                .isInstanceOf(InvalidPaymentStatusException.class);
+        assertThat(updater.calls).isEqualTo(1);
+        assertThat(count("ecommerce.payments.conflict.retries.total")).isZero();
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).tag("operation", "update").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    static class FlakyUpdater {
+
+        private final Deque<RuntimeException> failures = new ArrayDeque<>();
+        private int calls;
+
+        @RetryOnConflict
+        public String update() {
+            calls++;
+            RuntimeException failure = failures.poll();
+            if (failure != null) {
+                throw failure;
+            }
+            return "updated";
+        }
+    }
+}
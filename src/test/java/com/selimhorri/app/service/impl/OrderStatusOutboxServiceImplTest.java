@@ -0,0 +1,172 @@
+package com.selimhorri.app.service.impl;
+
+import com.selimhorri.app.client.OrderServiceClient;
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.domain.OrderStatusOutbox;
+import com.selimhorri.app.domain.enums.OutboxStatus;
+import com.selimhorri.app.repository.OrderStatusOutboxJdbcRepository;
+import com.selimhorri.app.repository.OrderStatusOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderStatusOutboxServiceImplTest {
+
+    @Mock
+    private OrderStatusOutboxRepository outboxRepository;
+
+    @Mock
+    private OrderStatusOutboxJdbcRepository outboxJdbcRepository;
+
+    @Mock
+    private OrderServiceClient orderServiceClient;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PaymentProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OrderStatusOutboxServiceImpl outboxService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PaymentProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        outboxService = new OrderStatusOutboxServiceImpl(
+                outboxRepository, outboxJdbcRepository, orderServiceClient, properties, transactionManager, meterRegistry);
+    }
+
+    private OrderStatusOutbox entry(long outboxId, int orderId, int attempts) {
+        return OrderStatusOutbox.builder()
+                .outboxId(outboxId)
+                .orderId(orderId)
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(Instant.now().minusSeconds(1))
+                .build();
+    }
+
+    private void due(OrderStatusOutbox... entries) {
+        when(outboxRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByNextAttemptAtAsc(
+                eq(OutboxStatus.PENDING), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(entries));
+    }
+
+    @Test
+    @DisplayName("relayPending_WhenDeliverySucceeds_RemovesEntry")
+    void relayPending_WhenDeliverySucceeds_RemovesEntry() {
+        // Arrange
+        OrderStatusOutbox entry = entry(1L, 10, 0);
+        due(entry);
+        when(outboxRepository.claim(eq(1L), eq(OutboxStatus.PENDING), eq(entry.getNextAttemptAt()), any(Instant.class)))
+                .thenReturn(1);
+
+        // Act
+        int delivered = outboxService.relayPending();
+
+        // Assert
+        assertThat(delivered).isEqualTo(1);
+        verify(orderServiceClient).updateOrderStatus(10);
+        verify(outboxRepository).deleteById(1L);
+        assertThat(meterRegistry.get("ecommerce.payments.outbox.delivered.total").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("relayPending_WhenAnotherRelayClaimedEntry_SkipsIt")
+    void relayPending_WhenAnotherRelayClaimedEntry_SkipsIt() {
+        // Arrange
+        due(entry(2L, 20, 0));
+        when(outboxRepository.claim(eq(2L), any(), any(), any())).thenReturn(0);
+
+        // Act
+        int delivered = outboxService.relayPending();
+
+        // Assert
+        assertThat(delivered).isZero();
+        verifyNoInteractions(orderServiceClient);
+    }
+
+    @Test
+    @DisplayName("relayPending_WhenOrderServiceUnavailable_ReschedulesWithBackoff")
+    void relayPending_WhenOrderServiceUnavailable_ReschedulesWithBackoff() {
+        // Arrange
+        OrderStatusOutbox entry = entry(3L, 30, 0);
+        due(entry);
+        when(outboxRepository.claim(eq(3L), any(), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(3L)).thenReturn(Optional.of(entry(3L, 30, 0)));
+        doThrow(new ResourceAccessException("connect timed out")).when(orderServiceClient).updateOrderStatus(30);
+        Instant before = Instant.now();
+
+        // Act
+        int delivered = outboxService.relayPending();
+
+        // Assert
+        ArgumentCaptor<OrderStatusOutbox> saved = ArgumentCaptor.forClass(OrderStatusOutbox.class);
+        verify(outboxRepository).save(saved.capture());
+        assertThat(delivered).isZero();
+        assertThat(saved.getValue().getStatus()).isEqualTo(OutboxStatus.PENDING);
+        assertThat(saved.getValue().getAttempts()).isEqualTo(1);
+        assertThat(saved.getValue().getNextAttemptAt()).isAfter(before);
+        assertThat(saved.getValue().getLastError()).contains("connect timed out");
+        verify(outboxRepository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    @DisplayName("relayPending_WhenLastAttemptFails_MarksEntryFailed")
+    void relayPending_WhenLastAttemptFails_MarksEntryFailed() {
+        // Arrange
+        int lastAttempt = properties.getOutbox().getMaxAttempts() - 1;
+        due(entry(4L, 40, lastAttempt));
+        when(outboxRepository.claim(eq(4L), any(), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(4L)).thenReturn(Optional.of(entry(4L, 40, lastAttempt)));
+        doThrow(new ResourceAccessException("connection refused")).when(orderServiceClient).updateOrderStatus(40);
+
+        // Act
+        outboxService.relayPending();
+
+        // Assert
+        ArgumentCaptor<OrderStatusOutbox> saved = ArgumentCaptor.forClass(OrderStatusOutbox.class);
+        verify(outboxRepository).save(saved.capture());
+        assertThat(saved.getValue().getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(meterRegistry.get("ecommerce.payments.outbox.failed.total").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("relayPending_WhenOrderServiceRejectsUpdate_MarksEntryFailedWithoutRetry")
+    void relayPending_WhenOrderServiceRejectsUpdate_MarksEntryFailedWithoutRetry() {
+        // Arrange
+        due(entry(5L, 50, 0));
+        when(outboxRepository.claim(eq(5L), any(), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(5L)).thenReturn(Optional.of(entry(5L, 50, 0)));
+        doThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null))
+                .when(orderServiceClient).updateOrderStatus(50);
+
+        // Act
+        outboxService.relayPending();
+
+        // Assert
+        ArgumentCaptor<OrderStatusOutbox> saved = ArgumentCaptor.forClass(OrderStatusOutbox.class);
+        verify(outboxRepository).save(saved.capture());
+        assertThat(saved.getValue().getStatus()).isEqualTo(OutboxStatus.FAILED);
+        assertThat(saved.getValue().getAttempts()).isEqualTo(1);
+    }
+}
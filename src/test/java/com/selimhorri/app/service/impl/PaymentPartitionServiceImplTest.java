@@ -0,0 +1,165 @@
+package com.selimhorri.app.service.impl;
+
+import com.selimhorri.app.config.payment.PaymentProperties;
+import com.selimhorri.app.helper.PaymentPartition;
+import com.selimhorri.app.repository.PaymentPartitionJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentPartitionServiceImplTest {
+
+    @Mock
+    private PaymentPartitionJdbcRepository partitionJdbcRepository;
+
+    private PaymentProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentPartitionServiceImpl partitionService;
+
+    private final PaymentPartition current = PaymentPartition.of(Instant.now());
+
+    @BeforeEach
+    void setUp() {
+        properties = new PaymentProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        partitionService = new PaymentPartitionServiceImpl(partitionJdbcRepository, properties, meterRegistry);
+    }
+
+    /**
+     * The given partitions followed by those already covering the configured months ahead
+     */
+    private void partitioned(PaymentPartition... oldest) {
+        List<String> names = new ArrayList<>();
+        for (PaymentPartition partition : oldest) {
+            names.add(partition.getName());
+        }
+        for (int month = 0; month <= properties.getPartitions().getMonthsAhead(); month++) {
+            names.add(current.plusMonths(month).getName());
+        }
+        names.add(PaymentPartition.CATCH_ALL);
+        when(partitionJdbcRepository.findPartitionNames()).thenReturn(names);
+    }
+
+    private double retired() {
+        return meterRegistry.get("ecommerce.payments.partitions.retired.total").counter().count();
+    }
+
+    @Test
+    @DisplayName("maintainPartitions_WhenTableIsNotPartitioned_ChangesNothing")
+    void maintainPartitions_WhenTableIsNotPartitioned_ChangesNothing() {
+        // Arrange
+        when(partitionJdbcRepository.findPartitionNames()).thenReturn(List.of());
+
+        // Act
+        int changed = partitionService.maintainPartitions();
+
+        // Assert
+        assertThat(changed).isZero();
+        verifyNoMoreInteractions(partitionJdbcRepository);
+    }
+
+    @Test
+    @DisplayName("maintainPartitions_WhenMonthsAheadAreMissing_SplitsThemOffCatchAll")
+    void maintainPartitions_WhenMonthsAheadAreMissing_SplitsThemOffCatchAll() {
+        // Arrange
+        when(partitionJdbcRepository.findPartitionNames())
+                .thenReturn(List.of(current.getName(), PaymentPartition.CATCH_ALL));
+
+        // Act
+        int changed = partitionService.maintainPartitions();
+
+        // Assert
+        assertThat(changed).isEqualTo(3);
+        verify(partitionJdbcRepository).addPartitions(
+                List.of(current.plusMonths(1), current.plusMonths(2), current.plusMonths(3)));
+        assertThat(meterRegistry.get("ecommerce.payments.partitions.created.total").counter().count())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("maintainPartitions_WhenOnlyCatchAllExists_SplitsMonthsFromOldestPayment")
+    void maintainPartitions_WhenOnlyCatchAllExists_SplitsMonthsFromOldestPayment() {
+        // Arrange
+        when(partitionJdbcRepository.findPartitionNames()).thenReturn(List.of(PaymentPartition.CATCH_ALL));
+        when(partitionJdbcRepository.findOldestCreatedAt())
+                .thenReturn(Optional.of(current.plusMonths(-2).getEnd().minusSeconds(1)));
+
+        // Act
+        int changed = partitionService.maintainPartitions();
+
+        // Assert
+        assertThat(changed).isEqualTo(6);
+        verify(partitionJdbcRepository).addPartitions(List.of(current.plusMonths(-2), current.plusMonths(-1),
+                current, current.plusMonths(1), current.plusMonths(2), current.plusMonths(3)));
+        verify(partitionJdbcRepository, never()).dropPartition(any());
+    }
+
+    @Test
+    @DisplayName("maintainPartitions_WhenPartitionIsPastRetentionAndEmpty_DropsIt")
+    void maintainPartitions_WhenPartitionIsPastRetentionAndEmpty_DropsIt() {
+        // Arrange
+        PaymentPartition expired = current.plusMonths(-14);
+        partitioned(expired, current.plusMonths(-2));
+        when(partitionJdbcRepository.countPayments(expired)).thenReturn(0L);
+
+        // Act
+        int changed = partitionService.maintainPartitions();
+
+        // Assert
+        assertThat(changed).isEqualTo(1);
+        verify(partitionJdbcRepository, never()).addPartitions(any());
+        verify(partitionJdbcRepository).dropPartition(expired);
+        verify(partitionJdbcRepository, never()).dropPartition(current.plusMonths(-2));
+        assertThat(retired()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("maintainPartitions_WhenExpiredPartitionStillHoldsFinalPayments_KeepsIt")
+    void maintainPartitions_WhenExpiredPartitionStillHoldsFinalPayments_KeepsIt() {
+        // Arrange
+        PaymentPartition expired = current.plusMonths(-14);
+        partitioned(expired, current.plusMonths(-13));
+        when(partitionJdbcRepository.countPayments(expired)).thenReturn(12L);
+        when(partitionJdbcRepository.countFinalPayments(expired)).thenReturn(12L);
+
+        // Act
+        int changed = partitionService.maintainPartitions();
+
+        // Assert
+        assertThat(changed).isZero();
+        verify(partitionJdbcRepository, never()).dropPartition(any());
+    }
+
+    @Test
+    @DisplayName("maintainPartitions_WhenExpiredPartitionHoldsUnfinishedPayments_KeepsIt")
+    void maintainPartitions_WhenExpiredPartitionHoldsUnfinishedPayments_KeepsIt() {
+        // Arrange
+        PaymentPartition expired = current.plusMonths(-14);
+        partitioned(expired, current.plusMonths(-13));
+        when(partitionJdbcRepository.countPayments(expired)).thenReturn(3L);
+        when(partitionJdbcRepository.countFinalPayments(expired)).thenReturn(0L);
+
+        // Act
+        int changed = partitionService.maintainPartitions();
+
+        // Assert
+        assertThat(changed).isZero();
+        verify(partitionJdbcRepository, never()).dropPartition(any());
+        assertThat(retired()).isZero();
+    }
+
+}
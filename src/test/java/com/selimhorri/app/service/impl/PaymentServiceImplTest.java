@@ -1,26 +1,53 @@
 package com.selimhorri.app.service.impl;
 
+import com.selimhorri.app.client.MissingOrderCache;
+import com.selimhorri.app.client.OrderLookupBatcher;
+import com.selimhorri.app.client.OrderServiceGateway;
+import com.selimhorri.app.client.OrderSnapshotCache;
+import com.selimhorri.app.client.ParallelOrderLookup;
+import com.selimhorri.app.client.impl.OrderServiceClientImpl;
+import com.selimhorri.app.config.client.OrderClientProperties;
+import com.selimhorri.app.config.payment.PaymentProperties;
 import com.selimhorri.app.constant.AppConstant;
+import com.selimhorri.app.domain.ArchivedPayment;
 import com.selimhorri.app.domain.Payment;
 import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
 import com.selimhorri.app.dto.OrderDto;
+import com.selimhorri.app.dto.OrderReferenceDto;
 import com.selimhorri.app.dto.PaymentDto;
+import com.selimhorri.app.dto.PaymentSearchCriteria;
+import com.selimhorri.app.dto.response.BulkItemResult;
+import com.selimhorri.app.dto.response.BulkOperationResponse;
+import com.selimhorri.app.dto.response.collection.DtoCursorPageResponse;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.DuplicateResourceException;
 import com.selimhorri.app.exception.custom.ExternalServiceException;
 import com.selimhorri.app.exception.custom.InvalidInputException;
 import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
+import com.selimhorri.app.exception.custom.PaymentConflictException;
 import com.selimhorri.app.exception.custom.ResourceNotFoundException;
+import com.selimhorri.app.helper.PaymentCursor;
+import com.selimhorri.app.repository.ArchivedPaymentRepository;
+import com.selimhorri.app.repository.PaymentJdbcRepository;
 import com.selimhorri.app.repository.PaymentRepository;
+import com.selimhorri.app.service.OrderStatusOutboxService;
+import com.selimhorri.app.statemachine.PaymentStateMachine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -42,7 +69,17 @@ class PaymentServiceImplTest {
     @Mock
     private com.selimhorri.app.metrics.PaymentBusinessMetrics businessMetrics;
 
-    @InjectMocks
+    @Mock
+    private OrderStatusOutboxService orderStatusOutboxService;
+
+    @Mock
+    private PaymentJdbcRepository paymentJdbcRepository;
+
+    @Mock
+    private ArchivedPaymentRepository archivedPaymentRepository;
+
+    private PaymentStateMachine stateMachine;
+
     private PaymentServiceImpl paymentService;
 
     private static final String ORDER_API = AppConstant.DiscoveredDomainsApi.ORDER_SERVICE_API_URL;
@@ -72,6 +109,26 @@ class PaymentServiceImplTest {
     @BeforeEach
     void resetMocks() {
         clearInvocations(paymentRepository, restTemplate);
+        stateMachine = new PaymentStateMachine(List.of(), List.of(businessMetrics));
+        paymentService = new PaymentServiceImpl(
+                paymentRepository,
+                orderServiceClient(new OrderClientProperties()),
+                businessMetrics,
+                new PaymentProperties(),
+                orderStatusOutboxService,
+                paymentJdbcRepository,
+                stateMachine,
+                archivedPaymentRepository);
+    }
+
+    private OrderServiceClientImpl orderServiceClient(OrderClientProperties properties) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OrderServiceGateway gateway = new OrderServiceGateway(restTemplate, properties);
+        return new OrderServiceClientImpl(properties, gateway,
+                new ParallelOrderLookup(Runnable::run, properties),
+                new OrderSnapshotCache(properties, meterRegistry),
+                new OrderLookupBatcher(properties, gateway, meterRegistry),
+                new MissingOrderCache(properties, meterRegistry));
     }
 
     @Test
@@ -83,10 +140,8 @@ class PaymentServiceImplTest {
                 payment(2, 20, PaymentStatus.IN_PROGRESS, false)
         ));
 
-        when(restTemplate.getForObject(ORDER_API + "/" + 10, OrderDto.class))
-                .thenReturn(order(10, "IN_PAYMENT"));
-        when(restTemplate.getForObject(ORDER_API + "/" + 20, OrderDto.class))
-                .thenReturn(order(20, "IN_PAYMENT"));
+        when(restTemplate.getForObject(ORDER_API + "/batch?ids=10,20", OrderDto[].class))
+                .thenReturn(new OrderDto[] { order(10, "IN_PAYMENT"), order(20, "IN_PAYMENT") });
 
         // Act
         List<PaymentDto> result = paymentService.findAll();
@@ -98,8 +153,8 @@ class PaymentServiceImplTest {
             assertThat(dto.getOrderDto().getOrderStatus()).isEqualTo("IN_PAYMENT");
         });
         verify(paymentRepository).findAll();
-        verify(restTemplate, times(1)).getForObject(ORDER_API + "/" + 10, OrderDto.class);
-        verify(restTemplate, times(1)).getForObject(ORDER_API + "/" + 20, OrderDto.class);
+        verify(restTemplate, times(1)).getForObject(ORDER_API + "/batch?ids=10,20", OrderDto[].class);
+        verify(restTemplate, never()).getForObject(anyString(), eq(OrderDto.class));
     }
 
     @Test
@@ -110,6 +165,8 @@ class PaymentServiceImplTest {
                 payment(1, 30, PaymentStatus.NOT_STARTED, false)
         ));
 
+        when(restTemplate.getForObject(ORDER_API + "/batch?ids=30", OrderDto[].class))
+                .thenThrow(new RestClientException("batch endpoint unavailable"));
         when(restTemplate.getForObject(ORDER_API + "/" + 30, OrderDto.class))
                 .thenThrow(new RestClientException("boom"));
 
@@ -126,6 +183,188 @@ class PaymentServiceImplTest {
         verify(paymentRepository).findAll();
     }
 
+    @Test
+    @DisplayName("findAll_WhenPaymentsShareOrders_ResolvesDistinctOrderIdsInChunks")
+    void findAll_WhenPaymentsShareOrders_ResolvesDistinctOrderIdsInChunks() {
+        // Arrange
+        OrderClientProperties properties = new OrderClientProperties();
+        properties.getBatch().setChunkSize(2);
+        paymentService = new PaymentServiceImpl(
+                paymentRepository,
+                orderServiceClient(properties),
+                businessMetrics,
+                new PaymentProperties(),
+                orderStatusOutboxService,
+                paymentJdbcRepository,
+                stateMachine,
+                archivedPaymentRepository);
+
+        when(paymentRepository.findAll()).thenReturn(Arrays.asList(
+                payment(1, 10, PaymentStatus.NOT_STARTED, false),
+                payment(2, 20, PaymentStatus.IN_PROGRESS, false),
+                payment(3, 10, PaymentStatus.COMPLETED, true),
+                payment(4, 30, PaymentStatus.NOT_STARTED, false)
+        ));
+
+        when(restTemplate.getForObject(ORDER_API + "/batch?ids=10,20", OrderDto[].class))
+                .thenReturn(new OrderDto[] { order(10, "IN_PAYMENT"), order(20, "IN_PAYMENT") });
+        when(restTemplate.getForObject(ORDER_API + "/batch?ids=30", OrderDto[].class))
+                .thenReturn(new OrderDto[] { order(30, "ORDERED") });
+
+        // Act
+        List<PaymentDto> result = paymentService.findAll();
+
+        // Assert
+        assertThat(result).extracting(PaymentDto::getPaymentId).containsExactly(1, 2, 3, 4);
+        assertThat(result).extracting(dto -> dto.getOrderDto().getOrderStatus())
+                .containsExactly("IN_PAYMENT", "IN_PAYMENT", "IN_PAYMENT", "ORDERED");
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(OrderDto[].class));
+        verify(restTemplate, never()).getForObject(anyString(), eq(OrderDto.class));
+    }
+
+    @Test
+    @DisplayName("findAll_WhenOrderNotExpanded_ReturnsOrderReferencesWithoutRemoteCalls")
+    void findAll_WhenOrderNotExpanded_ReturnsOrderReferencesWithoutRemoteCalls() {
+        // Arrange
+        when(paymentRepository.findAll()).thenReturn(Arrays.asList(
+                payment(1, 10, PaymentStatus.NOT_STARTED, false),
+                payment(2, 20, PaymentStatus.COMPLETED, true)
+        ));
+
+        // Act
+        List<PaymentDto> result = paymentService.findAll(false);
+
+        // Assert
+        assertThat(result).extracting(dto -> dto.getOrderDto().getOrderId()).containsExactly(10, 20);
+        assertThat(result).extracting(PaymentDto::getOrderDto).allMatch(OrderReferenceDto.class::isInstance);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("findById_WhenOrderNotExpanded_ReturnsOrderReferenceWithoutRemoteCall")
+    void findById_WhenOrderNotExpanded_ReturnsOrderReferenceWithoutRemoteCall() {
+        // Arrange
+        when(paymentRepository.findById(7)).thenReturn(Optional.of(
+                payment(7, 70, PaymentStatus.IN_PROGRESS, false)
+        ));
+
+        // Act
+        PaymentDto result = paymentService.findById(7, false);
+
+        // Assert
+        assertThat(result.getPaymentStatus()).isEqualTo(PaymentStatus.IN_PROGRESS);
+        assertThat(result.getOrderDto().getOrderId()).isEqualTo(70);
+        assertThat(result.getOrderDto()).isInstanceOf(OrderReferenceDto.class);
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("findPage_WhenMoreRowsThanPageSize_ReturnsCursorToLastRowOfPage")
+    void findPage_WhenMoreRowsThanPageSize_ReturnsCursorToLastRowOfPage() {
+        // Arrange
+        Instant createdAt = Instant.parse("2025-01-01T10:00:00Z");
+        Payment first = payment(1, 10, PaymentStatus.NOT_STARTED, false);
+        Payment second = payment(2, 20, PaymentStatus.NOT_STARTED, false);
+        Payment third = payment(3, 30, PaymentStatus.NOT_STARTED, false);
+        first.setCreatedAt(createdAt);
+        second.setCreatedAt(createdAt);
+        third.setCreatedAt(createdAt.plusSeconds(1));
+        when(paymentRepository.findAllByOrderByCreatedAtAscPaymentIdAsc(any(Pageable.class)))
+                .thenReturn(Arrays.asList(first, second, third));
+
+        // Act
+        DtoCursorPageResponse<PaymentDto> page = paymentService.findPage(null, 2, false);
+
+        // Assert
+        assertThat(page.getCollection()).extracting(PaymentDto::getPaymentId).containsExactly(1, 2);
+        assertThat(page.isHasMore()).isTrue();
+        assertThat(PaymentCursor.decode(page.getNextCursor())).isEqualTo(new PaymentCursor(createdAt, 2));
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    @DisplayName("findPage_WhenSizeAboveCap_QueriesAtMostMaxSizeRows")
+    void findPage_WhenSizeAboveCap_QueriesAtMostMaxSizeRows() {
+        // Arrange
+        Instant createdAt = Instant.parse("2025-01-01T10:00:00Z");
+        String cursor = new PaymentCursor(createdAt, 5).encode();
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(paymentRepository.findPageAfter(eq(createdAt), eq(5), pageableCaptor.capture()))
+                .thenReturn(List.of());
+
+        // Act
+        DtoCursorPageResponse<PaymentDto> page = paymentService.findPage(cursor, 100_000, false);
+
+        // Assert
+        assertThat(page.getCollection()).isEmpty();
+        assertThat(page.isHasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(pageableCaptor.getValue().getPageSize()).isEqualTo(new PaymentProperties().getPage().getMaxSize() + 1);
+    }
+
+    @Test
+    @DisplayName("findPage_WhenCursorMalformed_ThrowsInvalidInputException")
+    void findPage_WhenCursorMalformed_ThrowsInvalidInputException() {
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.findPage("not-a-cursor", 10, false))
+                .isInstanceOf(InvalidInputException.class);
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @DisplayName("search_WhenWindowIsEmpty_ThrowsInvalidInputException")
+    void search_WhenWindowIsEmpty_ThrowsInvalidInputException() {
+        // Arrange
+        Instant now = Instant.now();
+        PaymentSearchCriteria criteria = PaymentSearchCriteria.builder()
+                .createdFrom(now)
+                .createdTo(now.minusSeconds(60))
+                .build();
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.search(criteria, null, null, false))
+                .isInstanceOf(InvalidInputException.class);
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @DisplayName("findAllByIds_WhenExpanded_ReadsOnceAndEnrichesInOneBatch")
+    void findAllByIds_WhenExpanded_ReadsOnceAndEnrichesInOneBatch() {
+        // Arrange
+        when(paymentRepository.findAllById(List.of(3, 1, 2))).thenReturn(Arrays.asList(
+                payment(1, 10, PaymentStatus.NOT_STARTED, false),
+                payment(2, 20, PaymentStatus.IN_PROGRESS, false),
+                payment(3, 10, PaymentStatus.COMPLETED, true)
+        ));
+        when(restTemplate.getForObject(ORDER_API + "/batch?ids=10,20", OrderDto[].class))
+                .thenReturn(new OrderDto[] { order(10, "IN_PAYMENT"), order(20, "IN_PAYMENT") });
+
+        // Act
+        List<PaymentDto> result = paymentService.findAllByIds(List.of(3, 1, 3, 2), true);
+
+        // Assert
+        assertThat(result).extracting(PaymentDto::getPaymentId).containsExactly(3, 1, 2);
+        assertThat(result).extracting(dto -> dto.getOrderDto().getOrderStatus()).containsOnly("IN_PAYMENT");
+        verify(paymentRepository, times(1)).findAllById(anyIterable());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(OrderDto[].class));
+        verify(restTemplate, never()).getForObject(anyString(), eq(OrderDto.class));
+    }
+
+    @Test
+    @DisplayName("findAllByOrderIds_WhenTooManyIds_ThrowsInvalidInputException")
+    void findAllByOrderIds_WhenTooManyIds_ThrowsInvalidInputException() {
+        // Arrange
+        List<Integer> orderIds = new ArrayList<>();
+        for (int orderId = 1; orderId <= new PaymentProperties().getLookup().getMaxIds() + 1; orderId++) {
+            orderIds.add(orderId);
+        }
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.findAllByOrderIds(orderIds, false))
+                .isInstanceOf(InvalidInputException.class);
+        verifyNoInteractions(paymentRepository);
+    }
+
     @Test
     @DisplayName("findById_WhenPaymentNotFound_ThrowsResourceNotFoundException")
     void findById_WhenPaymentNotFound_ThrowsResourceNotFoundException() {
@@ -153,6 +392,52 @@ class PaymentServiceImplTest {
                 .isInstanceOf(ExternalServiceException.class);
     }
 
+    @Test
+    @DisplayName("save_WhenOrderWasRecentlyMissing_LooksItUpAgain")
+    void save_WhenOrderWasRecentlyMissing_LooksItUpAgain() {
+        // Arrange
+        when(paymentRepository.findById(6)).thenReturn(Optional.of(
+                payment(6, 56, PaymentStatus.NOT_STARTED, false)
+        ));
+        when(restTemplate.getForObject(ORDER_API + "/" + 56, OrderDto.class))
+                .thenThrow(MissingOrderCache.notFound(56))
+                .thenReturn(order(56, "ORDERED"));
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenReturn(
+                payment(11, 56, PaymentStatus.NOT_STARTED, false)
+        );
+        assertThatThrownBy(() -> paymentService.findById(6))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> paymentService.findById(6))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        // Act
+        PaymentDto result = paymentService.save(paymentDtoWithOrder(56));
+
+        // Assert
+        assertThat(result.getOrderDto().getOrderStatus()).isEqualTo("ORDERED");
+        verify(restTemplate, times(2)).getForObject(ORDER_API + "/" + 56, OrderDto.class);
+    }
+
+    @Test
+    @DisplayName("save_WhenCachedOrderHasSinceBeenCanceled_ThrowsInvalidInputException")
+    void save_WhenCachedOrderHasSinceBeenCanceled_ThrowsInvalidInputException() {
+        // Arrange
+        when(paymentRepository.findById(7)).thenReturn(Optional.of(
+                payment(7, 57, PaymentStatus.NOT_STARTED, false)
+        ));
+        when(restTemplate.getForObject(ORDER_API + "/" + 57, OrderDto.class))
+                .thenReturn(order(57, "ORDERED"))
+                .thenReturn(order(57, "CANCELED"));
+        assertThat(paymentService.findById(7).getOrderDto().getOrderStatus()).isEqualTo("ORDERED");
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.save(paymentDtoWithOrder(57)))
+                .isInstanceOf(InvalidInputException.class)
+                .hasMessageContaining("CANCELED");
+        verify(restTemplate, times(2)).getForObject(ORDER_API + "/" + 57, OrderDto.class);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
+    }
+
     @Test
     @DisplayName("save_WhenOrderIdMissing_ThrowsInvalidInputException")
     void save_WhenOrderIdMissing_ThrowsInvalidInputException() {
@@ -167,6 +452,35 @@ class PaymentServiceImplTest {
         verifyNoInteractions(paymentRepository);
     }
 
+    @Test
+    @DisplayName("save_WhenOrderAlreadyHasPayment_ThrowsDuplicateResourceExceptionWithoutRemoteCalls")
+    void save_WhenOrderAlreadyHasPayment_ThrowsDuplicateResourceExceptionWithoutRemoteCalls() {
+        // Arrange
+        when(paymentRepository.existsByOrderId(66)).thenReturn(true);
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.save(paymentDtoWithOrder(66)))
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessageContaining("66");
+        verifyNoInteractions(restTemplate, orderStatusOutboxService);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
+    }
+
+    @Test
+    @DisplayName("save_WhenConcurrentDuplicateHitsUniqueConstraint_ThrowsDuplicateResourceException")
+    void save_WhenConcurrentDuplicateHitsUniqueConstraint_ThrowsDuplicateResourceException() {
+        // Arrange
+        when(restTemplate.getForObject(ORDER_API + "/" + 67, OrderDto.class))
+                .thenReturn(order(67, "ORDERED"));
+        when(paymentRepository.saveAndFlush(any(Payment.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_payments_order_id"));
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.save(paymentDtoWithOrder(67)))
+                .isInstanceOf(DuplicateResourceException.class);
+        verifyNoInteractions(orderStatusOutboxService);
+    }
+
     @Test
     @DisplayName("save_WhenOrderStatusIsNotOrdered_ThrowsInvalidInputException")
     void save_WhenOrderStatusIsNotOrdered_ThrowsInvalidInputException() {
@@ -179,7 +493,7 @@ class PaymentServiceImplTest {
         assertThatThrownBy(() -> paymentService.save(request))
                 .isInstanceOf(InvalidInputException.class);
         verify(restTemplate).getForObject(ORDER_API + "/" + 77, OrderDto.class);
-        verifyNoInteractions(paymentRepository);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
     }
 
     @Test
@@ -194,19 +508,19 @@ class PaymentServiceImplTest {
         assertThatThrownBy(() -> paymentService.save(request))
                 .isInstanceOf(ExternalServiceException.class);
         verify(restTemplate).getForObject(ORDER_API + "/" + 88, OrderDto.class);
-        verifyNoInteractions(paymentRepository);
+        verify(paymentRepository, never()).saveAndFlush(any(Payment.class));
     }
 
     @Test
-    @DisplayName("save_WhenSuccess_SetsDefaultsAndUpdatesOrderStatusAndReturnsEnrichedDto")
-    void save_WhenSuccess_SetsDefaultsAndUpdatesOrderStatusAndReturnsEnrichedDto() {
+    @DisplayName("save_WhenSuccess_SetsDefaultsAndQueuesOrderStatusUpdateAndReturnsEnrichedDto")
+    void save_WhenSuccess_SetsDefaultsAndQueuesOrderStatusUpdateAndReturnsEnrichedDto() {
         // Arrange
         PaymentDto request = paymentDtoWithOrder(55);
         when(restTemplate.getForObject(ORDER_API + "/" + 55, OrderDto.class))
                 .thenReturn(order(55, "ORDERED"));
 
         ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+        when(paymentRepository.saveAndFlush(any(Payment.class))).thenAnswer(invocation -> {
             Payment p = invocation.getArgument(0);
             return payment(1, p.getOrderId(), p.getPaymentStatus(), p.getIsPayed());
         });
@@ -221,34 +535,75 @@ class PaymentServiceImplTest {
         assertThat(result.getOrderDto()).isNotNull();
         assertThat(result.getOrderDto().getOrderId()).isEqualTo(55);
 
-        verify(paymentRepository).save(paymentCaptor.capture());
+        verify(paymentRepository).saveAndFlush(paymentCaptor.capture());
         Payment savedEntity = paymentCaptor.getValue();
         assertThat(savedEntity.getOrderId()).isEqualTo(55);
         assertThat(savedEntity.getIsPayed()).isFalse();
         assertThat(savedEntity.getPaymentStatus()).isEqualTo(PaymentStatus.NOT_STARTED);
 
-        verify(restTemplate).patchForObject(ORDER_API + "/" + 55 + "/status", null, Void.class);
+        verify(orderStatusOutboxService).enqueue(55);
+        verify(restTemplate, never()).patchForObject(anyString(), any(), eq(Void.class));
     }
 
     @Test
-    @DisplayName("save_WhenOrderStatusUpdateFails_ThrowsExternalServiceException")
-    void save_WhenOrderStatusUpdateFails_ThrowsExternalServiceException() {
+    @DisplayName("saveAll_WhenSomeItemsCannotBePaid_CreatesTheRestAndReportsEachItem")
+    void saveAll_WhenSomeItemsCannotBePaid_CreatesTheRestAndReportsEachItem() {
         // Arrange
-        PaymentDto request = paymentDtoWithOrder(66);
-        when(restTemplate.getForObject(ORDER_API + "/" + 66, OrderDto.class))
-                .thenReturn(order(66, "ORDERED"));
+        List<PaymentDto> request = Arrays.asList(
+                paymentDtoWithOrder(31),
+                paymentDtoWithOrder(32),
+                paymentDtoWithOrder(null),
+                paymentDtoWithOrder(33),
+                paymentDtoWithOrder(31),
+                paymentDtoWithOrder(34));
+        when(paymentRepository.findPaidOrderIds(any())).thenReturn(List.of(32));
+        when(restTemplate.getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class)))
+                .thenReturn(new OrderDto[] { order(31, "ORDERED"), order(33, "IN_PAYMENT") });
+        doAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            payments.forEach(p -> p.setPaymentId(100 + p.getOrderId()));
+            return null;
+        }).when(paymentJdbcRepository).insertAll(anyList(), anyInt());
 
-        when(paymentRepository.save(any(Payment.class))).thenReturn(
-                payment(10, 66, PaymentStatus.NOT_STARTED, false)
-        );
+        // Act
+        BulkOperationResponse<PaymentDto> response = paymentService.saveAll(request);
+
+        // Assert
+        assertThat(response.getSucceeded()).isEqualTo(1);
+        assertThat(response.getFailed()).isEqualTo(5);
+        assertThat(response.getResults()).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2, 3, 4, 5);
+        assertThat(response.getResults()).extracting(BulkItemResult::getErrorCode).containsExactly(
+                null,
+                ErrorCode.PAYMENT_ALREADY_EXISTS.getCode(),
+                ErrorCode.MISSING_REQUIRED_FIELD.getCode(),
+                ErrorCode.INVALID_ORDER_STATUS.getCode(),
+                ErrorCode.PAYMENT_ALREADY_EXISTS.getCode(),
+                ErrorCode.ORDER_NOT_FOUND.getCode());
+        PaymentDto created = response.getResults().get(0).getItem();
+        assertThat(created.getPaymentId()).isEqualTo(131);
+        assertThat(created.getPaymentStatus()).isEqualTo(PaymentStatus.NOT_STARTED);
+        assertThat(created.getOrderDto().getOrderStatus()).isEqualTo("ORDERED");
+
+        verify(orderStatusOutboxService).enqueueAll(List.of(31));
+        verify(restTemplate, times(1)).getForObject(startsWith(ORDER_API + "/batch?ids="), eq(OrderDto[].class));
+        verify(paymentRepository, never()).save(any(Payment.class));
+    }
 
-        doThrow(new RestClientException("patch failed"))
-                .when(restTemplate)
-                .patchForObject(ORDER_API + "/" + 66 + "/status", null, Void.class);
+    @Test
+    @DisplayName("saveAll_WhenTooManyItems_ThrowsInvalidInputException")
+    void saveAll_WhenTooManyItems_ThrowsInvalidInputException() {
+        // Arrange
+        PaymentProperties properties = new PaymentProperties();
+        properties.getBulk().setMaxItems(2);
+        paymentService = new PaymentServiceImpl(paymentRepository, orderServiceClient(new OrderClientProperties()),
+                businessMetrics, properties, orderStatusOutboxService, paymentJdbcRepository, stateMachine,
+                archivedPaymentRepository);
+        List<PaymentDto> request = List.of(paymentDtoWithOrder(1), paymentDtoWithOrder(2), paymentDtoWithOrder(3));
 
         // Act + Assert
-        assertThatThrownBy(() -> paymentService.save(request))
-                .isInstanceOf(ExternalServiceException.class);
+        assertThatThrownBy(() -> paymentService.saveAll(request))
+                .isInstanceOf(InvalidInputException.class);
+        verifyNoInteractions(paymentRepository, paymentJdbcRepository, restTemplate);
     }
 
     @Test
@@ -269,7 +624,8 @@ class PaymentServiceImplTest {
         when(paymentRepository.findById(1)).thenReturn(Optional.of(
                 payment(1, 10, PaymentStatus.NOT_STARTED, false)
         ));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.transitionStatus(eq(1), eq(PaymentStatus.NOT_STARTED), any(), eq(PaymentStatus.IN_PROGRESS), any()))
+                .thenReturn(1);
 
         // Act
         PaymentDto result = paymentService.updateStatus(1);
@@ -285,7 +641,8 @@ class PaymentServiceImplTest {
         when(paymentRepository.findById(2)).thenReturn(Optional.of(
                 payment(2, 20, PaymentStatus.IN_PROGRESS, false)
         ));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.transitionStatus(eq(2), eq(PaymentStatus.IN_PROGRESS), any(), eq(PaymentStatus.COMPLETED), any()))
+                .thenReturn(1);
 
         // Act
         PaymentDto result = paymentService.updateStatus(2);
@@ -305,7 +662,7 @@ class PaymentServiceImplTest {
         // Act + Assert
         assertThatThrownBy(() -> paymentService.updateStatus(3))
                 .isInstanceOf(InvalidPaymentStatusException.class);
-        verify(paymentRepository, never()).save(any());
+        verify(paymentRepository, never()).transitionStatus(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -330,24 +687,172 @@ class PaymentServiceImplTest {
         // Act + Assert
         assertThatThrownBy(() -> paymentService.deleteById(7))
                 .isInstanceOf(InvalidPaymentStatusException.class);
-        verify(paymentRepository, never()).save(any());
+        verify(paymentRepository, never()).transitionStatus(any(), any(), any(), any(), any());
     }
 
     @Test
-    @DisplayName("deleteById_WhenCancelable_SetsCanceledAndSaves")
-    void deleteById_WhenCancelable_SetsCanceledAndSaves() {
+    @DisplayName("deleteById_WhenCancelable_SetsCanceledWithConditionalUpdate")
+    void deleteById_WhenCancelable_SetsCanceledWithConditionalUpdate() {
         // Arrange
         when(paymentRepository.findById(8)).thenReturn(Optional.of(
                 payment(8, 80, PaymentStatus.IN_PROGRESS, false)
         ));
-        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentRepository.transitionStatus(eq(8), eq(PaymentStatus.IN_PROGRESS), any(), eq(PaymentStatus.CANCELED), any()))
+                .thenReturn(1);
 
         // Act
         paymentService.deleteById(8);
 
         // Assert
-        ArgumentCaptor<Payment> captor = ArgumentCaptor.forClass(Payment.class);
-        verify(paymentRepository).save(captor.capture());
-        assertThat(captor.getValue().getPaymentStatus()).isEqualTo(PaymentStatus.CANCELED);
+        verify(paymentRepository).transitionStatus(eq(8), eq(PaymentStatus.IN_PROGRESS), any(), eq(PaymentStatus.CANCELED), any());
+        verify(paymentRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("updateStatus_WhenConcurrentlyModified_ThrowsPaymentConflictException")
+    void updateStatus_WhenConcurrentlyModified_ThrowsPaymentConflictException() {
+        // Arrange
+        when(paymentRepository.findById(9)).thenReturn(Optional.of(
+                payment(9, 90, PaymentStatus.IN_PROGRESS, false)
+        ));
+        when(paymentRepository.transitionStatus(eq(9), eq(PaymentStatus.IN_PROGRESS), any(), eq(PaymentStatus.COMPLETED), any()))
+                .thenReturn(0);
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.updateStatus(9))
+                .isInstanceOf(PaymentConflictException.class)
+                .hasMessageContaining("9");
+        verify(businessMetrics, never()).onTransition(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("updateStatusAll_WhenPaymentsStartFromDifferentStatuses_UpdatesEachGroupOnce")
+    void updateStatusAll_WhenPaymentsStartFromDifferentStatuses_UpdatesEachGroupOnce() {
+        // Arrange
+        List<Integer> request = Arrays.asList(1, 2, 3, 4, 2, null, 5);
+        when(paymentRepository.findAllByIdForUpdate(any())).thenReturn(List.of(
+                payment(1, 10, PaymentStatus.NOT_STARTED, false),
+                payment(2, 20, PaymentStatus.IN_PROGRESS, false),
+                payment(3, 30, PaymentStatus.NOT_STARTED, false),
+                payment(4, 40, PaymentStatus.COMPLETED, true)));
+        when(paymentRepository.transitionStatusAll(eq(List.of(1, 3)), eq(PaymentStatus.NOT_STARTED),
+                eq(PaymentStatus.IN_PROGRESS), any())).thenReturn(2);
+        when(paymentRepository.transitionStatusAll(eq(List.of(2)), eq(PaymentStatus.IN_PROGRESS),
+                eq(PaymentStatus.COMPLETED), any())).thenReturn(1);
+
+        // Act
+        BulkOperationResponse<PaymentDto> response = paymentService.updateStatusAll(request);
+
+        // Assert
+        assertThat(response.getSucceeded()).isEqualTo(3);
+        assertThat(response.getFailed()).isEqualTo(4);
+        assertThat(response.getResults()).extracting(BulkItemResult::getErrorCode).containsExactly(
+                null,
+                null,
+                null,
+                ErrorCode.PAYMENT_ALREADY_COMPLETED.getCode(),
+                ErrorCode.INVALID_INPUT.getCode(),
+                ErrorCode.MISSING_REQUIRED_FIELD.getCode(),
+                ErrorCode.PAYMENT_NOT_FOUND.getCode());
+        assertThat(response.getResults().get(0).getItem().getPaymentStatus()).isEqualTo(PaymentStatus.IN_PROGRESS);
+        assertThat(response.getResults().get(1).getItem().getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        verify(paymentRepository, times(1)).findAllByIdForUpdate(any());
+        verify(paymentRepository, times(2)).transitionStatusAll(any(), any(), any(), any());
+        verify(businessMetrics).onTransition(eq(stateMachine.transition(PaymentStatus.NOT_STARTED, PaymentEvent.ADVANCE)),
+                eq(List.of(1, 3)), any());
+        verify(businessMetrics).onTransition(eq(stateMachine.transition(PaymentStatus.IN_PROGRESS, PaymentEvent.ADVANCE)),
+                eq(List.of(2)), any());
+    }
+
+    @Test
+    @DisplayName("updateStatusAll_WhenLockedRowsStillChange_ThrowsBulkConflict")
+    void updateStatusAll_WhenLockedRowsStillChange_ThrowsBulkConflict() {
+        // Arrange
+        when(paymentRepository.findAllByIdForUpdate(any())).thenReturn(List.of(
+                payment(1, 10, PaymentStatus.NOT_STARTED, false),
+                payment(2, 20, PaymentStatus.NOT_STARTED, false)));
+        when(paymentRepository.transitionStatusAll(eq(List.of(1, 2)), eq(PaymentStatus.NOT_STARTED),
+                eq(PaymentStatus.IN_PROGRESS), any())).thenReturn(1);
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.updateStatusAll(List.of(1, 2)))
+                .isInstanceOf(PaymentConflictException.class)
+                .hasMessage(ErrorCode.PAYMENTS_CONCURRENTLY_MODIFIED.formatMessage(1, 2));
+        verify(businessMetrics, never()).onTransition(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("deleteAllByIds_WhenSomeAreNotCancelable_CancelsTheRestInOneUpdatePerStatus")
+    void deleteAllByIds_WhenSomeAreNotCancelable_CancelsTheRestInOneUpdatePerStatus() {
+        // Arrange
+        when(paymentRepository.findAllByIdForUpdate(any())).thenReturn(List.of(
+                payment(1, 10, PaymentStatus.NOT_STARTED, false),
+                payment(2, 20, PaymentStatus.CANCELED, false),
+                payment(3, 30, PaymentStatus.IN_PROGRESS, false)));
+        when(paymentRepository.transitionStatusAll(eq(List.of(1)), eq(PaymentStatus.NOT_STARTED),
+                eq(PaymentStatus.CANCELED), any())).thenReturn(1);
+        when(paymentRepository.transitionStatusAll(eq(List.of(3)), eq(PaymentStatus.IN_PROGRESS),
+                eq(PaymentStatus.CANCELED), any())).thenReturn(1);
+
+        // Act
+        BulkOperationResponse<PaymentDto> response = paymentService.deleteAllByIds(List.of(1, 2, 3));
+
+        // Assert
+        assertThat(response.getSucceeded()).isEqualTo(2);
+        assertThat(response.getResults()).extracting(BulkItemResult::getErrorCode).containsExactly(
+                null, ErrorCode.PAYMENT_ALREADY_CANCELED.getCode(), null);
+        verify(businessMetrics).onTransition(eq(stateMachine.transition(PaymentStatus.NOT_STARTED, PaymentEvent.CANCEL)),
+                eq(List.of(1)), any());
+        verify(businessMetrics).onTransition(eq(stateMachine.transition(PaymentStatus.IN_PROGRESS, PaymentEvent.CANCEL)),
+                eq(List.of(3)), any());
+    }
+
+    @Test
+    @DisplayName("updateStatusAll_WhenTooManyIds_ThrowsInvalidInputException")
+    void updateStatusAll_WhenTooManyIds_ThrowsInvalidInputException() {
+        // Arrange
+        PaymentProperties properties = new PaymentProperties();
+        properties.getBulk().setMaxItems(2);
+        paymentService = new PaymentServiceImpl(paymentRepository, orderServiceClient(new OrderClientProperties()),
+                businessMetrics, properties, orderStatusOutboxService, paymentJdbcRepository, stateMachine,
+                archivedPaymentRepository);
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.updateStatusAll(List.of(1, 2, 3)))
+                .isInstanceOf(InvalidInputException.class);
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    @DisplayName("findById_WhenPaymentWasArchived_ReadsItFromTheArchive")
+    void findById_WhenPaymentWasArchived_ReadsItFromTheArchive() {
+        // Arrange
+        when(paymentRepository.findById(11)).thenReturn(Optional.empty());
+        when(archivedPaymentRepository.findById(11)).thenReturn(Optional.of(ArchivedPayment.builder()
+                .paymentId(11).orderId(110).isPayed(true).paymentStatus(PaymentStatus.COMPLETED).version(2L).build()));
+
+        // Act
+        PaymentDto result = paymentService.findById(11, false);
+
+        // Assert
+        assertThat(result.getPaymentId()).isEqualTo(11);
+        assertThat(result.getPaymentStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(result.getOrderDto().getOrderId()).isEqualTo(110);
+    }
+
+    @Test
+    @DisplayName("updateStatus_WhenPaymentWasArchived_ThrowsInvalidPaymentStatusException")
+    void updateStatus_WhenPaymentWasArchived_ThrowsInvalidPaymentStatusException() {
+        // Arrange
+        when(paymentRepository.findById(12)).thenReturn(Optional.empty());
+        when(archivedPaymentRepository.findById(12)).thenReturn(Optional.of(ArchivedPayment.builder()
+                .paymentId(12).orderId(120).isPayed(false).paymentStatus(PaymentStatus.CANCELED).version(1L).build()));
+
+        // Act + Assert
+        assertThatThrownBy(() -> paymentService.updateStatus(12))
+                .isInstanceOf(InvalidPaymentStatusException.class)
+                .extracting(e -> ((InvalidPaymentStatusException) e).getErrorCode())
+                .isEqualTo(ErrorCode.PAYMENT_ALREADY_CANCELED);
+        verify(paymentRepository, never()).transitionStatus(any(), any(), any(), any(), any());
     }
 }
@@ -0,0 +1,87 @@
+package com.selimhorri.app.statemachine;
+
+import com.selimhorri.app.domain.Payment;
+import com.selimhorri.app.domain.PaymentStatus;
+import com.selimhorri.app.domain.enums.PaymentEvent;
+import com.selimhorri.app.exception.ErrorCode;
+import com.selimhorri.app.exception.custom.InvalidPaymentStatusException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentStateMachineTest {
+
+    private final PaymentStateMachine stateMachine = new PaymentStateMachine(List.of(), List.of());
+
+    @Test
+    @DisplayName("transition_WhenAdvancing_MovesOneStepTowardsCompleted")
+    void transition_WhenAdvancing_MovesOneStepTowardsCompleted() {
+        // Act
+        PaymentTransition start = stateMachine.transition(PaymentStatus.NOT_STARTED, PaymentEvent.ADVANCE);
+        PaymentTransition complete = stateMachine.transition(PaymentStatus.IN_PROGRESS, PaymentEvent.ADVANCE);
+
+        // Assert
+        assertThat(start.getTo()).isEqualTo(PaymentStatus.IN_PROGRESS);
+        assertThat(start.isCompleting()).isFalse();
+        assertThat(complete.getTo()).isEqualTo(PaymentStatus.COMPLETED);
+        assertThat(complete.isCompleting()).isTrue();
+        assertThat(stateMachine.transition(PaymentStatus.NOT_STARTED, PaymentEvent.ADVANCE)).isSameAs(start);
+    }
+
+    @Test
+    @DisplayName("transition_WhenCanceling_EndsCanceled")
+    void transition_WhenCanceling_EndsCanceled() {
+        // Act + Assert
+        assertThat(stateMachine.transition(PaymentStatus.NOT_STARTED, PaymentEvent.CANCEL))
+                .extracting(PaymentTransition::getTo, PaymentTransition::isCanceling)
+                .containsExactly(PaymentStatus.CANCELED, true);
+        assertThat(stateMachine.transition(PaymentStatus.IN_PROGRESS, PaymentEvent.CANCEL).getTo())
+                .isEqualTo(PaymentStatus.CANCELED);
+    }
+
+    @Test
+    @DisplayName("transition_WhenPaymentIsFinal_RejectsEveryEventWithItsErrorCode")
+    void transition_WhenPaymentIsFinal_RejectsEveryEventWithItsErrorCode() {
+        for (PaymentEvent event : PaymentEvent.values()) {
+            assertThatThrownBy(() -> stateMachine.transition(PaymentStatus.COMPLETED, event))
+                    .isInstanceOf(InvalidPaymentStatusException.class)
+                    .extracting(e -> ((InvalidPaymentStatusException) e).getErrorCode())
+                    .isEqualTo(ErrorCode.PAYMENT_ALREADY_COMPLETED);
+            assertThatThrownBy(() -> stateMachine.transition(PaymentStatus.CANCELED, event))
+                    .isInstanceOf(InvalidPaymentStatusException.class)
+                    .extracting(e -> ((InvalidPaymentStatusException) e).getErrorCode())
+                    .isEqualTo(ErrorCode.PAYMENT_ALREADY_CANCELED);
+        }
+    }
+
+    @Test
+    @DisplayName("transition_WhenGuardRejects_ThrowsBeforeListenersRun")
+    void transition_WhenGuardRejects_ThrowsBeforeListenersRun() {
+        // Arrange
+        List<PaymentTransition> notified = new ArrayList<>();
+        PaymentStateMachine guarded = new PaymentStateMachine(
+                List.of((payment, transition) -> {
+                    if (Boolean.TRUE.equals(payment.getIsPayed()) && transition.isCanceling()) {
+                        throw new InvalidPaymentStatusException("Paid payments cannot be canceled");
+                    }
+                }),
+                List.of((transition, paymentIds, appliedAt) -> notified.add(transition)));
+        Payment paid = Payment.builder().paymentId(1).paymentStatus(PaymentStatus.IN_PROGRESS).isPayed(true).build();
+        Payment unpaid = Payment.builder().paymentId(2).paymentStatus(PaymentStatus.IN_PROGRESS).isPayed(false).build();
+
+        // Act
+        PaymentTransition allowed = guarded.transition(unpaid, PaymentEvent.CANCEL);
+        guarded.applied(allowed, List.of(unpaid.getPaymentId()), Instant.now());
+
+        // Assert
+        assertThatThrownBy(() -> guarded.transition(paid, PaymentEvent.CANCEL))
+                .isInstanceOf(InvalidPaymentStatusException.class);
+        assertThat(notified).containsExactly(allowed);
+    }
+}